@@ -10,7 +10,7 @@ import com.android.task_interf.IVictor;
 /**
  * Name: TaskA Description: 测试任务A Author: wudi41 Date: 2022/8/31 14:30
  */
-@TaskAnnotation(name = "TaskA", depends = {"TaskB", "TaskC", "TaskD"})
+@TaskAnnotation(name = "TaskA", cost = 1000, depends = {"TaskB", "TaskC", "TaskD"})
 public class TaskA implements IRunTask {
     @Override
     public void execute(Context context) {
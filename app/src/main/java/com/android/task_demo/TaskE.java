@@ -10,7 +10,7 @@ import com.android.task_interf.IVictor;
 /**
  * Name: DemoTask1 Description: 测试任务1 Author: wudi41 Date: 2022/8/31 14:30
  */
-@TaskAnnotation(name = "TaskE", background = true, priority = 0)
+@TaskAnnotation(name = "TaskE", background = true, priority = 0, cost = 1000)
 public class TaskE implements IRunTask {
     @Override
     public void execute(Context context) {
@@ -1,14 +1,21 @@
 package com.android.task_demo;
 
 import android.app.Application;
+import android.content.Context;
 import android.util.Log;
 
 import com.android.task_annotation.TaskEntity;
+import com.android.task_impl.TaskDurationStore;
 import com.android.task_impl.TaskRegisterManager;
+import com.android.task_impl.TaskTrace;
 import com.android.task_interf.IVictor;
 import com.android.task_interf.RunTaskListener;
+import com.android.task_interf.TaskTimeoutListener;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 
 /**
@@ -16,6 +23,13 @@ import java.util.HashMap;
  */
 public class VictorApplication extends Application {
 
+    @Override
+    protected void attachBaseContext(Context base) {
+        super.attachBaseContext(base);
+        // 提前读取任务历史耗时，onCreate 中按实测耗时安排任务顺序
+        TaskRegisterManager.getInstance().setDurationStore(TaskDurationStore.open(base));
+    }
+
     @Override
     public void onCreate() {
         super.onCreate();
@@ -24,6 +38,14 @@ public class VictorApplication extends Application {
         for (TaskEntity task :  taskList) {
             Log.i(IVictor.TAG, "entity = " + task.toString());
         }
+        // 任务执行超过注解中的 timeout 时上报卡住的调用栈
+        TaskRegisterManager.getInstance().setTimeoutListener(new TaskTimeoutListener() {
+            @Override
+            public void onTaskTimeout(TaskEntity task, Thread thread, StackTraceElement[] stackTrace) {
+                Log.w(IVictor.TAG, "task.name = " + task.name + "执行超时，线程 " + thread.getName() + " 调用栈："
+                        + Arrays.toString(stackTrace));
+            }
+        });
         TaskRegisterManager.getInstance().start(this, new RunTaskListener() {
             @Override
             public void onSingleComplete(TaskEntity task) {
@@ -34,6 +56,18 @@ public class VictorApplication extends Application {
             @Override
             public void onAllComplete() {
                 Log.i(IVictor.TAG, "全部任务执行完成");
+                // 导出本次启动的 trace，adb pull 后可在 Perfetto 中打开
+                final TaskTrace trace = TaskRegisterManager.getInstance().getTaskTrace();
+                new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            trace.writeChromeTrace(new File(getFilesDir(), "victor_trace.json"));
+                        } catch (IOException e) {
+                            Log.w(IVictor.TAG, "导出启动 trace 失败", e);
+                        }
+                    }
+                }).start();
             }
         });
     }
@@ -10,7 +10,7 @@ import com.android.task_interf.IVictor;
 /**
  * Name: TaskB Description: 测试任务B Author: wudi41 Date: 2022/8/31 14:30
  */
-@TaskAnnotation(name = "TaskB", depends = {"TaskC"})
+@TaskAnnotation(name = "TaskB", cost = 2000, depends = {"TaskC"})
 public class TaskB implements IRunTask {
     @Override
     public void execute(Context context) {
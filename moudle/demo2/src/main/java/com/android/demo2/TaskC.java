@@ -10,7 +10,7 @@ import com.android.task_interf.IVictor;
 /**
  * Name: TaskC Description: 测试任务C Author: wudi41 Date: 2022/8/31 14:30
  */
-@TaskAnnotation(name = "TaskC", depends = {"TaskD"})
+@TaskAnnotation(name = "TaskC", cost = 3000, depends = {"TaskD"})
 public class TaskC implements IRunTask {
     @Override
     public void execute(Context context) {
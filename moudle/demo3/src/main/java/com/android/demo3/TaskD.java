@@ -11,7 +11,7 @@ import com.android.task_interf.IVictor;
 /**
  * Name: TaskD Description: 测试任务D Author: wudi41 Date: 2022/8/31 14:30
  */
-@TaskAnnotation(name = "TaskD", background = false)
+@TaskAnnotation(name = "TaskD", background = false, cost = 1000)
 public class TaskD implements IRunTask {
     @Override
     public void execute(Context context) {
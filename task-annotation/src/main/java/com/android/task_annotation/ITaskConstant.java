@@ -10,5 +10,35 @@ public interface ITaskConstant {
     int PRIORITY_LOW = 1000;
     int PRIORITY_MIN = Integer.MAX_VALUE;
 
+    int COST_DEFAULT = 1;
+
+    /** 由 background 和 idle 决定执行线程，后台任务使用 CPU 线程池 */
+    int DISPATCHER_DEFAULT = 0;
+    /** CPU 密集任务（加载 dex/so、解析 JSON 等），在与核数相同大小的线程池执行 */
+    int DISPATCHER_CPU = 1;
+    /** 阻塞 IO 任务（读写文件、打开数据库等），在线程数更多的 IO 线程池执行 */
+    int DISPATCHER_IO = 2;
+    /** 主线程任务 */
+    int DISPATCHER_MAIN = 3;
+    /** 首帧之后、主线程空闲时执行的主线程任务 */
+    int DISPATCHER_IDLE = 4;
+
+    /** 不限制执行时长 */
+    int TIMEOUT_NONE = 0;
+    /** 超时后只上报，依赖它的任务继续等待 */
+    int TIMEOUT_POLICY_WAIT = 0;
+    /** 超时后上报并视为完成，立即释放依赖它的任务，任务本身继续执行 */
+    int TIMEOUT_POLICY_RELEASE = 1;
+    /**
+     * 超时后上报，并在看门狗线程把超时异常交给执行任务的线程的 UncaughtExceptionHandler（线程已结束时交给默认处理），
+     * Android 默认的处理会结束进程。执行任务的线程不会被中断，依赖它的任务继续等待
+     */
+    int TIMEOUT_POLICY_FAIL = 2;
+
+    /** 主进程 */
     String PROCESS_MAIN = "main";
+    /** 除主进程外的所有进程 */
+    String PROCESS_OTHER = "other";
+    /** 所有进程 */
+    String PROCESS_ALL = "all";
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.android.task_annotation;
+
+/**
+ * ClassName: ITaskFactory
+ * Description: 任务工厂，由注册类实现，任务执行前才创建任务实例，不执行的任务不会被加载
+ * Date: 2026/10/18 18:05
+ */
+public interface ITaskFactory {
+    /**
+     * 创建任务实例
+     *
+     * @param index 任务在注册类中的序号
+     *
+     * @return 任务实例
+     */
+    ITask create(int index);
+}
@@ -21,12 +21,30 @@ public @interface TaskAnnotation {
     /** 是否在后台线程执行 */
     boolean background() default true;
 
+    /** 主线程任务是否延后到首帧之后、主线程空闲时按帧预算执行，仅 background = false 时生效 */
+    boolean idle() default false;
+
+    /** 执行线程，见 ITaskConstant.DISPATCHER_XXX，不为 DISPATCHER_DEFAULT 时忽略 background 和 idle */
+    int dispatcher() default ITaskConstant.DISPATCHER_DEFAULT;
+
     /** 优先级，越小优先级越高 */
     int priority() default ITaskConstant.PRIORITY_NORM;
 
-    /** 任务执行进程，支持主进程、非主进程、所有进程、:xxx、特定进程名 */
+    /** 预估耗时（毫秒），用于计算关键路径，关键路径越长越先执行；开启历史耗时后以实测值为准 */
+    int cost() default ITaskConstant.COST_DEFAULT;
+
+    /** 是否懒加载：启动时不执行，首次通过 TaskRegisterManager.startLazyTask 请求时才执行 */
+    boolean lazy() default false;
+
+    /** 任务执行进程，满足任意一个即可，支持主进程、非主进程、所有进程、:xxx、特定进程名，见 ITaskConstant */
     String[] process() default {ITaskConstant.PROCESS_MAIN};
 
     /** 依赖的任务 */
     String[] depends() default {} ;
+
+    /** 执行超时时间（毫秒），从任务开始执行时计时，超时后由看门狗上报并按 timeoutPolicy 处理，0 表示不限制 */
+    int timeout() default ITaskConstant.TIMEOUT_NONE;
+
+    /** 超时后的处理方式，见 ITaskConstant.TIMEOUT_POLICY_XXX */
+    int timeoutPolicy() default ITaskConstant.TIMEOUT_POLICY_WAIT;
 }
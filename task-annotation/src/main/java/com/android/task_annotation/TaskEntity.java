@@ -11,24 +11,108 @@ public class TaskEntity implements Comparable {
     public String name;
     /** 是否在后台线程执行 */
     public boolean background;
+    /** 主线程任务是否在首帧之后、主线程空闲时执行 */
+    public boolean idle;
+    /** 执行线程，见 ITaskConstant.DISPATCHER_XXX，background 和 idle 与之保持一致 */
+    public int dispatcher;
     /** 优先级，越小优先级越高 */
     public int priority;
+    /** 预估耗时，用于计算关键路径 */
+    public int cost;
+    /** 是否懒加载，被非懒加载任务依赖时仍在启动时执行 */
+    public boolean lazy;
     /** 任务执行进程，支持主进程、非主进程、所有进程、:xxx、特定进程名 */
     public String[] process;
     /** 依赖的任务 */
     public String[] depends;
-    /** 要执行的任务工作 */
+    /** 执行超时时间（毫秒），0 表示不限制 */
+    public int timeout;
+    /** 超时后的处理方式，见 ITaskConstant.TIMEOUT_POLICY_XXX */
+    public int timeoutPolicy;
+    /** 要执行的任务工作，通过工厂注册时在首次执行前才创建 */
     public ITask task;
-    /** 是否已经执行 */
-    public boolean executed;
+    /** 任务工厂，为 null 时直接使用 task */
+    public ITaskFactory factory;
+    /** 任务在工厂中的序号 */
+    public int factoryIndex;
+    /** 是否已经执行，由执行任务的线程写入 */
+    public volatile boolean executed;
+    /** 任务 id，构建任务图时分配，与任务在任务图中的下标一致 */
+    public int id = -1;
+    /** 从当前任务到最后一个任务的最长路径耗时（含自身），构建任务图时计算 */
+    public long criticalPath;
 
+    /**
+     * 旧版注解处理器生成的注册代码使用的构造方法，预编译的 aar 中的 TaskRegister$xxx 仍会调用，不能删除。
+     * 未传入的属性与 {@link Builder} 的默认值一致
+     *
+     * @deprecated 请使用 {@link Builder}
+     */
+    @Deprecated
     public TaskEntity(String name, boolean background, int priority, String[] process, String[] depends, ITask task) {
+        this(name, background, false, ITaskConstant.DISPATCHER_DEFAULT, priority, ITaskConstant.COST_DEFAULT, false,
+                process, depends, ITaskConstant.TIMEOUT_NONE, ITaskConstant.TIMEOUT_POLICY_WAIT, null, 0);
+        this.task = task;
+    }
+
+    /**
+     * 注解处理器生成的注册代码使用的构造方法，参数与 {@link TaskAnnotation} 一一对应，任务实例在首次执行前通过工厂创建。
+     * 手写注册代码请使用 {@link Builder}
+     */
+    public TaskEntity(String name, boolean background, boolean idle, int dispatcher, int priority, int cost,
+                      boolean lazy, String[] process, String[] depends, int timeout, int timeoutPolicy,
+                      ITaskFactory factory, int factoryIndex) {
         this.name = name;
         this.background = background;
+        this.idle = idle;
         this.priority = priority;
+        this.cost = cost;
+        this.lazy = lazy;
         this.process = process;
         this.depends = depends;
-        this.task = task;
+        this.timeout = timeout;
+        this.timeoutPolicy = timeoutPolicy;
+        this.factory = factory;
+        this.factoryIndex = factoryIndex;
+        setDispatcher(dispatcher);
+    }
+
+    /**
+     * 设置执行线程，同时更新 background 和 idle；为 DISPATCHER_DEFAULT 时保留原来的 background 和 idle
+     *
+     * @param dispatcher 见 ITaskConstant.DISPATCHER_XXX
+     */
+    public void setDispatcher(int dispatcher) {
+        this.dispatcher = dispatcher;
+        switch (dispatcher) {
+            case ITaskConstant.DISPATCHER_CPU:
+            case ITaskConstant.DISPATCHER_IO:
+                background = true;
+                idle = false;
+                break;
+            case ITaskConstant.DISPATCHER_MAIN:
+                background = false;
+                idle = false;
+                break;
+            case ITaskConstant.DISPATCHER_IDLE:
+                background = false;
+                idle = true;
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * 获取任务实例，首次调用时通过工厂创建，只应由执行任务的线程调用
+     *
+     * @return 任务实例
+     */
+    public ITask getTask() {
+        if (task == null && factory != null) {
+            task = factory.create(factoryIndex);
+        }
+        return task;
     }
 
     @Override
@@ -48,7 +132,9 @@ public class TaskEntity implements Comparable {
     public int compareTo(Object o) {
         if (o instanceof TaskEntity) {
             TaskEntity p = (TaskEntity) o;
-            return p.priority - this.priority;
+            // 关键路径越长越先出队，相同时优先级数值越小越先出队
+            int result = Long.compare(p.criticalPath, this.criticalPath);
+            return result != 0 ? result : Integer.compare(this.priority, p.priority);
         }
         return 0;
     }
@@ -58,9 +144,113 @@ public class TaskEntity implements Comparable {
         return "TaskEntity{" +
                 "name='" + name + '\'' +
                 ", background=" + background +
+                ", idle=" + idle +
+                ", dispatcher=" + dispatcher +
                 ", priority=" + priority +
+                ", cost=" + cost +
+                ", lazy=" + lazy +
                 ", process=" + Arrays.toString(process) +
                 ", depends=" + Arrays.toString(depends) +
+                ", timeout=" + timeout +
+                ", timeoutPolicy=" + timeoutPolicy +
                 '}';
     }
+
+    /**
+     * 手写注册代码时创建任务，未设置的属性与 {@link TaskAnnotation} 的默认值一致
+     */
+    public static final class Builder {
+        private final String mName;
+        private boolean mBackground = true;
+        private boolean mIdle;
+        private int mDispatcher = ITaskConstant.DISPATCHER_DEFAULT;
+        private int mPriority = ITaskConstant.PRIORITY_NORM;
+        private int mCost = ITaskConstant.COST_DEFAULT;
+        private boolean mLazy;
+        private String[] mProcess = {ITaskConstant.PROCESS_MAIN};
+        private String[] mDepends = {};
+        private int mTimeout = ITaskConstant.TIMEOUT_NONE;
+        private int mTimeoutPolicy = ITaskConstant.TIMEOUT_POLICY_WAIT;
+        private ITask mTask;
+        private ITaskFactory mFactory;
+        private int mFactoryIndex;
+
+        /**
+         * @param name 任务名称，需唯一
+         */
+        public Builder(String name) {
+            this.mName = name;
+        }
+
+        public Builder background(boolean background) {
+            this.mBackground = background;
+            return this;
+        }
+
+        public Builder idle(boolean idle) {
+            this.mIdle = idle;
+            return this;
+        }
+
+        public Builder dispatcher(int dispatcher) {
+            this.mDispatcher = dispatcher;
+            return this;
+        }
+
+        public Builder priority(int priority) {
+            this.mPriority = priority;
+            return this;
+        }
+
+        public Builder cost(int cost) {
+            this.mCost = cost;
+            return this;
+        }
+
+        public Builder lazy(boolean lazy) {
+            this.mLazy = lazy;
+            return this;
+        }
+
+        public Builder process(String... process) {
+            this.mProcess = process;
+            return this;
+        }
+
+        public Builder depends(String... depends) {
+            this.mDepends = depends;
+            return this;
+        }
+
+        public Builder timeout(int timeout, int timeoutPolicy) {
+            this.mTimeout = timeout;
+            this.mTimeoutPolicy = timeoutPolicy;
+            return this;
+        }
+
+        /**
+         * @param task 任务实例，与 factory 二选一
+         */
+        public Builder task(ITask task) {
+            this.mTask = task;
+            return this;
+        }
+
+        /**
+         * @param factory      任务工厂，首次执行前才创建任务实例，与 task 二选一
+         * @param factoryIndex 任务在工厂中的序号
+         */
+        public Builder factory(ITaskFactory factory, int factoryIndex) {
+            this.mFactory = factory;
+            this.mFactoryIndex = factoryIndex;
+            return this;
+        }
+
+        public TaskEntity build() {
+            TaskEntity entity = new TaskEntity(mName, mBackground, mIdle, mDispatcher, mPriority, mCost, mLazy,
+                    mProcess, mDepends, mTimeout, mTimeoutPolicy, mFactory, mFactoryIndex);
+            entity.task = mTask;
+            return entity;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.android.task_annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Name: TaskRegisterInfo
+ * Description: 生成的注册类上的任务元数据，顺序与 register 添加任务的顺序一致，供插件在编译期构建任务图
+ * Date: 2026/10/18
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.CLASS)
+public @interface TaskRegisterInfo {
+    /** 注册类中的全部任务 */
+    TaskAnnotation[] value();
+}
@@ -0,0 +1,59 @@
+package com.android.inject
+
+import com.android.build.api.instrumentation.AsmClassVisitorFactory
+import com.android.build.api.instrumentation.ClassContext
+import com.android.build.api.instrumentation.ClassData
+import com.android.build.api.instrumentation.InstrumentationParameters
+import org.gradle.api.file.RegularFileProperty
+import org.gradle.api.tasks.InputFile
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
+import org.objectweb.asm.ClassVisitor
+
+/**
+ * ClassName: InjectClassVisitorFactory
+ * Description: AGP 类处理流程中的注入实现，只处理 InjectScanTask 找到的注入类，其余类不经过本插件
+ * Date: 2026/10/18 18:10
+ */
+abstract class InjectClassVisitorFactory implements AsmClassVisitorFactory<Parameters> {
+
+    interface Parameters extends InstrumentationParameters {
+        /** InjectScanTask 的输出 */
+        @InputFile
+        @PathSensitive(PathSensitivity.NONE)
+        RegularFileProperty getRegistryFile()
+    }
+
+    /** 注入类 -> 需要注入到该类的配置，多个线程共用，首次使用时读取 */
+    private transient volatile Map<String, List<InjectPluginInfo>> registry
+
+    @Override
+    ClassVisitor createClassVisitor(ClassContext classContext, ClassVisitor nextClassVisitor) {
+        int api = instrumentationContext.apiVersion.get()
+        ClassVisitor cv = nextClassVisitor
+        getRegistry().get(toInternalName(classContext.currentClassData.className)).each { info ->
+            cv = CodeInjectProcessor.newClassVisitor(info, api, cv)
+        }
+        return cv
+    }
+
+    @Override
+    boolean isInstrumentable(ClassData classData) {
+        return getRegistry().containsKey(toInternalName(classData.className))
+    }
+
+    private Map<String, List<InjectPluginInfo>> getRegistry() {
+        if (registry == null) {
+            synchronized (this) {
+                if (registry == null) {
+                    registry = InjectRegistry.read(parameters.get().registryFile.get().asFile)
+                }
+            }
+        }
+        return registry
+    }
+
+    private static String toInternalName(String className) {
+        return className.replace('.', '/')
+    }
+}
@@ -0,0 +1,53 @@
+package com.android.inject
+
+import com.android.build.api.instrumentation.FramesComputationMode
+import com.android.build.api.instrumentation.InstrumentationScope
+import com.android.build.api.variant.AndroidComponentsExtension
+import org.gradle.api.Project
+import org.gradle.api.attributes.Attribute
+
+/**
+ * ClassName: InjectInstrumentation
+ * Description: 基于 AGP 7+ 的 AsmClassVisitorFactory 的实现：每个变体注册一个 InjectScanTask 扫描注册类，
+ * 注入在 AGP 自身的类处理流程中完成，不再复制全部 class 和 jar。
+ * 位于 agp7 源码集，只针对 AGP 7 的接口编译
+ * Date: 2026/10/18 18:10
+ */
+class InjectInstrumentation {
+    /** 依赖中的 class jar，与 AGP 的 AndroidArtifacts.ArtifactType.CLASSES_JAR 一致 */
+    static final String ARTIFACT_TYPE_CLASSES_JAR = 'android-classes-jar'
+    static final Attribute<String> ARTIFACT_TYPE = Attribute.of('artifactType', String)
+
+    /**
+     * 由 InjectPlugin 在确认当前构建的 AGP 支持 AsmClassVisitorFactory 后反射调用
+     */
+    static void apply(Project project, InjectPluginConfig config) {
+        AndroidComponentsExtension androidComponents = project.extensions.getByName('androidComponents') as AndroidComponentsExtension
+        androidComponents.onVariants(androidComponents.selector().all(), { variant ->
+            String variantName = variant.name.capitalize()
+            def scanTask = project.tasks.register("scan${variantName}InjectRegistry", InjectScanTask) { task ->
+                task.registerInfo = config.registerInfo
+                // 依赖的 class jar
+                task.classes.from(variant.runtimeConfiguration.incoming.artifactView { view ->
+                    view.attributes { it.attribute(ARTIFACT_TYPE, ARTIFACT_TYPE_CLASSES_JAR) }
+                }.files)
+                // 工程自身的 class，任务名与 AGP 创建的编译任务一致。onVariants 回调时 AGP 尚未注册编译任务，
+                // 在解析输入（计算任务图）时再按名称查找，同时带上对编译任务的依赖
+                List<String> compileTaskNames = ["compile${variantName}JavaWithJavac", "compile${variantName}Kotlin"]
+                task.projectClasses.from({
+                    compileTaskNames.findAll { project.tasks.names.contains(it) }.collect { project.tasks.named(it) }
+                })
+                task.registryFile.set(project.layout.buildDirectory.file("intermediates/inject-plugin/${variant.name}/registry.bin"))
+                task.taskGraphDir.set(project.layout.buildDirectory.dir("outputs/inject-plugin/${variant.name}"))
+            }
+            // AGP 7.0、7.1 在 Variant 上，7.2 起移到 Variant.instrumentation
+            def instrumentation = variant.hasProperty('instrumentation') ? variant.instrumentation : variant
+            instrumentation.transformClassesWith(InjectClassVisitorFactory, InstrumentationScope.ALL) { params ->
+                params.registryFile.set(scanTask.flatMap { it.registryFile })
+                return null
+            }
+            // 只在方法末尾追加调用，不改变控制流，保留原有栈帧即可
+            instrumentation.setAsmFramesComputationMode(FramesComputationMode.COPY_FRAMES)
+        })
+    }
+}
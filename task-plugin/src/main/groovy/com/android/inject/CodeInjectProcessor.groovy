@@ -15,6 +15,9 @@ import java.util.zip.ZipEntry
  * Date: 2022/8/31 15:56
  */
 class CodeInjectProcessor {
+    /** 单个字符串常量的最大字符数，保证编码后不超过常量池 65535 字节的限制 */
+    static final int MAX_CONSTANT_CHARS = 16384
+
     InjectPluginInfo extension
 
     private CodeInjectProcessor(InjectPluginInfo extension) {
@@ -32,6 +35,21 @@ class CodeInjectProcessor {
         }
     }
 
+    /**
+     * 创建向 initClassName 注入注册代码的 ClassVisitor，用于 AGP 的 AsmClassVisitorFactory
+     * @param extension 扫描完成的配置
+     * @param api ASM api 版本
+     * @param next 下一个 ClassVisitor
+     * @return ClassVisitor
+     */
+    static ClassVisitor newClassVisitor(InjectPluginInfo extension, int api, ClassVisitor next) {
+        return new CodeInjectProcessor(extension).createClassVisitor(api, next)
+    }
+
+    private ClassVisitor createClassVisitor(int api, ClassVisitor next) {
+        return new MyClassVisitor(api, next)
+    }
+
     /**
      * 处理jar包中的class代码注入
      * @param jarFile
@@ -42,28 +60,16 @@ class CodeInjectProcessor {
             def optJar = new File(jarFile.getParent(), jarFile.name + ".opt")
             if (optJar.exists())
                 optJar.delete()
-            def file = new JarFile(jarFile)
-            Enumeration enumeration = file.entries()
-            JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(optJar))
-
-            while (enumeration.hasMoreElements()) {
-                JarEntry jarEntry = (JarEntry) enumeration.nextElement()
-                String entryName = jarEntry.getName()
-                ZipEntry zipEntry = new ZipEntry(entryName)
-                InputStream inputStream = file.getInputStream(jarEntry)
-                jarOutputStream.putNextEntry(zipEntry)
-                if (isInitClass(entryName)) {
-                    println('generate code into:' + entryName)
-                    def bytes = doGenerateCode(inputStream)
-                    jarOutputStream.write(bytes)
-                } else {
-                    jarOutputStream.write(IOUtils.toByteArray(inputStream))
-                }
-                inputStream.close()
-                jarOutputStream.closeEntry()
+            // 只重写注入类，其余 entry 原样复制
+            def initEntryName = extension.initClassName + '.class'
+            def rewritten = JarEntryRewriter.rewrite(jarFile, optJar, initEntryName, { byte[] bytes ->
+                println('generate code into:' + initEntryName)
+                return doGenerateCode(new ByteArrayInputStream(bytes))
+            })
+            if (!rewritten) {
+                // zip64 等不支持原样复制的格式，逐个解压后重新压缩
+                copyJarWithGeneratedCode(jarFile, optJar)
             }
-            jarOutputStream.close()
-            file.close()
 
             if (jarFile.exists()) {
                 jarFile.delete()
@@ -73,6 +79,31 @@ class CodeInjectProcessor {
         return jarFile
     }
 
+    private void copyJarWithGeneratedCode(File jarFile, File optJar) {
+        def file = new JarFile(jarFile)
+        Enumeration enumeration = file.entries()
+        JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(optJar))
+
+        while (enumeration.hasMoreElements()) {
+            JarEntry jarEntry = (JarEntry) enumeration.nextElement()
+            String entryName = jarEntry.getName()
+            ZipEntry zipEntry = new ZipEntry(entryName)
+            InputStream inputStream = file.getInputStream(jarEntry)
+            jarOutputStream.putNextEntry(zipEntry)
+            if (isInitClass(entryName)) {
+                println('generate code into:' + entryName)
+                def bytes = doGenerateCode(inputStream)
+                jarOutputStream.write(bytes)
+            } else {
+                jarOutputStream.write(IOUtils.toByteArray(inputStream))
+            }
+            inputStream.close()
+            jarOutputStream.closeEntry()
+        }
+        jarOutputStream.close()
+        file.close()
+    }
+
     boolean isInitClass(String entryName) {
         if (entryName == null || !entryName.endsWith(".class"))
             return false
@@ -129,7 +160,7 @@ class CodeInjectProcessor {
             MethodVisitor mv = super.visitMethod(access, name, desc, signature, exceptions)
             if (name == extension.initMethodName) { // 注入代码到指定的方法之中
                 boolean _static = (access & Opcodes.ACC_STATIC) > 0
-                mv = new MyMethodVisitor(Opcodes.ASM5, mv, _static)
+                mv = new MyMethodVisitor(api, mv, _static)
             }
             return mv
         }
@@ -168,12 +199,50 @@ class CodeInjectProcessor {
                                 , false)
                     }
                 }
+                if (extension.schedule != null) {
+                    injectSchedule()
+                }
             }
             super.visitInsn(opcode)
         }
+
+        /**
+         * 注入 scheduleMethodName(inDegree, dependentsOffset, dependents, processGroups, taskProcessGroup)，
+         * 将编译期构建的任务图和进程分组交给运行时
+         */
+        private void injectSchedule() {
+            def schedule = extension.schedule
+            if (!_static) {
+                mv.visitVarInsn(Opcodes.ALOAD, 0)
+            }
+            pushString(TaskGraphCompiler.encode(schedule.inDegree))
+            pushString(TaskGraphCompiler.encode(schedule.dependentsOffset))
+            pushString(TaskGraphCompiler.encode(schedule.dependents))
+            pushString(TaskGraphCompiler.encodeProcessGroups(schedule.processGroups))
+            pushString(TaskGraphCompiler.encode(schedule.taskProcessGroup))
+            mv.visitMethodInsn(_static ? Opcodes.INVOKESTATIC : Opcodes.INVOKEVIRTUAL
+                    , extension.registerClassName
+                    , extension.scheduleMethodName
+                    , "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;)V"
+                    , false)
+        }
+
+        /**
+         * 字符串常量过长时分段，运行时用 String.concat 拼接
+         */
+        private void pushString(String value) {
+            mv.visitLdcInsn(value.length() > MAX_CONSTANT_CHARS ? value.substring(0, MAX_CONSTANT_CHARS) : value)
+            for (int start = MAX_CONSTANT_CHARS; start < value.length(); start += MAX_CONSTANT_CHARS) {
+                mv.visitLdcInsn(value.substring(start, Math.min(value.length(), start + MAX_CONSTANT_CHARS)))
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/String", "concat"
+                        , "(Ljava/lang/String;)Ljava/lang/String;", false)
+            }
+        }
+
         @Override
         void visitMaxs(int maxStack, int maxLocals) {
-            super.visitMaxs(maxStack + 4, maxLocals)
+            // this + 5 个字符串参数 + 拼接时的分段
+            super.visitMaxs(maxStack + 7, maxLocals)
         }
     }
 }
\ No newline at end of file
@@ -1,29 +1,43 @@
 package com.android.inject
 
+import org.objectweb.asm.AnnotationVisitor
 import org.objectweb.asm.ClassReader
 import org.objectweb.asm.ClassVisitor
-import org.objectweb.asm.ClassWriter
 import org.objectweb.asm.Opcodes
 
-import java.util.jar.JarEntry
-import java.util.jar.JarFile
+import java.util.concurrent.ConcurrentHashMap
 import java.util.regex.Pattern
+import java.util.zip.ZipEntry
+import java.util.zip.ZipInputStream
 
 /**
  * ClassName: CodeScanProcessor
- * Description: 代码扫描
+ * Description: 代码扫描，可在多个线程并发扫描不同的 jar
  * Author: wudi41
  * Date: 2022/8/31 15:56
  */
 class CodeScanProcessor {
+    static final String TASK_REGISTER_INFO_DESC = 'Lcom/android/task_annotation/TaskRegisterInfo;'
+    /** 只读取类头和类上的注解，不解析方法体、调试信息和栈帧 */
+    static final int HEADER_ONLY = ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES
+    /** 每个扫描线程复用的 class 读取缓冲区，不足时扩容 */
+    private static final ThreadLocal<byte[]> BUFFER = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[64 * 1024]
+        }
+    }
 
     ArrayList<InjectPluginInfo> infoList
+    /** 扫描结果缓存，未开启缓存时为 null */
+    ScanCache scanCache
+    /** 本次扫描的 jar 或 class 文件路径 -> 扫描结果，并发读写 */
     Map<String, ScanJarEntity> cacheMap
-    Set<String> cachedJarContainsInitClass = new HashSet<>()
 
-    CodeScanProcessor(ArrayList<InjectPluginInfo> infoList, Map<String, ScanJarEntity> cacheMap) {
+    CodeScanProcessor(ArrayList<InjectPluginInfo> infoList, ScanCache scanCache) {
         this.infoList = infoList
-        this.cacheMap = cacheMap
+        this.scanCache = scanCache
+        this.cacheMap = scanCache == null ? null : new ConcurrentHashMap<String, ScanJarEntity>()
     }
 
     /**
@@ -37,25 +51,23 @@ class CodeScanProcessor {
             return false
 
         def srcFilePath = jarFile.absolutePath
-        def file = new JarFile(jarFile)
-        Enumeration enumeration = file.entries()
-
-        while (enumeration.hasMoreElements()) {
-            JarEntry jarEntry = (JarEntry) enumeration.nextElement()
-            String entryName = jarEntry.getName()
-            // support包不扫描
-            if (entryName.startsWith("android/support"))
-                break
-            checkInitClass(entryName, destFile, srcFilePath)
-            // 是否要过滤这个类，这个可配置
-            if (shouldProcessClass(entryName)) {
-                InputStream inputStream = file.getInputStream(jarEntry)
-                scanClass(inputStream, jarFile.absolutePath)
-                inputStream.close()
+        // 顺序读取整个 jar，所有 entry 共用一个输入流
+        ZipInputStream zipInputStream = new ZipInputStream(new BufferedInputStream(new FileInputStream(jarFile)))
+        try {
+            ZipEntry zipEntry
+            while ((zipEntry = zipInputStream.getNextEntry()) != null) {
+                String entryName = zipEntry.getName()
+                // support包不扫描
+                if (entryName.startsWith("android/support"))
+                    break
+                checkInitClass(entryName, destFile, srcFilePath)
+                // 是否要过滤这个类，这个可配置
+                if (shouldProcessClass(entryName)) {
+                    scanBuffer(readFully(zipInputStream, zipEntry.getSize()), srcFilePath)
+                }
             }
-        }
-        if (null != file) {
-            file.close()
+        } finally {
+            zipInputStream.close()
         }
         // 加入缓存
         addToCacheMap(null, null, srcFilePath)
@@ -78,8 +90,11 @@ class CodeScanProcessor {
         infoList.each { ext ->
             if (ext.initClassName == entryName) {
                 ext.fileContainsInitClass = destFile
+                // 来源文件本次重新扫描并复制，目标文件是未注入的版本
+                ext.initClassSource = srcFilePath ? new File(srcFilePath) : null
+                ext.initClassChanged = true
+                addToCacheMap(null, entryName, srcFilePath)
                 if (destFile.name.endsWith(".jar")) {
-                    addToCacheMap(null, entryName, srcFilePath)
                     found = true
                 }
             }
@@ -135,22 +150,97 @@ class CodeScanProcessor {
      * @return 修改后的字节码文件内容
      */
     boolean scanClass(File file) {
-        return scanClass(file.newInputStream(), file.absolutePath)
+        InputStream inputStream = file.newInputStream()
+        try {
+            return scanBuffer(readFully(inputStream, file.length()), file.absolutePath)
+        } finally {
+            inputStream.close()
+        }
     }
 
     boolean scanClass(InputStream inputStream, String filePath) {
-        ClassReader cr = new ClassReader(inputStream)
-        ClassWriter cw = new ClassWriter(cr, 0)
-        ScanClassVisitor cv = new ScanClassVisitor(Opcodes.ASM5, cw, filePath)
-        cr.accept(cv, ClassReader.EXPAND_FRAMES)
-        inputStream.close()
+        try {
+            return scanBuffer(readFully(inputStream, -1), filePath)
+        } finally {
+            inputStream.close()
+        }
+    }
 
+    /**
+     * 扫描读取到当前线程缓冲区中的 class
+     * @param length class 的字节数
+     * @param filePath 来源文件
+     * @return 是否为注册类
+     */
+    private boolean scanBuffer(int length, String filePath) {
+        ClassReader cr = new ClassReader(BUFFER.get(), 0, length)
+        // 先通过类头判断，不可能是注册类的 class 不再继续解析
+        if (!isRegisterCandidate(cr.getAccess(), cr.getClassName(), cr.getSuperName(), cr.getInterfaces())) {
+            return false
+        }
+        ScanClassVisitor cv = new ScanClassVisitor(Opcodes.ASM5, null, filePath)
+        cr.accept(cv, HEADER_ONLY)
         return cv.found
     }
 
+    /**
+     * 读取输入流的剩余内容到当前线程的缓冲区，不关闭输入流
+     * @param inputStream 输入流
+     * @param sizeHint 预计大小，未知时为 -1
+     * @return 读取的字节数
+     */
+    private static int readFully(InputStream inputStream, long sizeHint) {
+        byte[] buffer = BUFFER.get()
+        if (sizeHint > buffer.length) {
+            buffer = new byte[(int) sizeHint]
+            BUFFER.set(buffer)
+        }
+        int length = 0
+        while (true) {
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2)
+                BUFFER.set(buffer)
+            }
+            int read = inputStream.read(buffer, length, buffer.length - length)
+            if (read < 0) {
+                return length
+            }
+            length += read
+        }
+    }
+
+    /**
+     * 根据类头判断是否可能是注册类，与 ScanClassVisitor.visit 的匹配条件一致
+     */
+    private boolean isRegisterCandidate(int access, String name, String superName, String[] interfaces) {
+        // 抽象类、接口、非public等类无法调用其无参构造方法
+        if ((access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_INTERFACE)) != 0 || (access & Opcodes.ACC_PUBLIC) == 0) {
+            return false
+        }
+        for (InjectPluginInfo ext : infoList) {
+            if (!shouldProcessThisClassForRegister(ext, name)) {
+                continue
+            }
+            if (superName != 'java/lang/Object' && ext.superClassNames.contains(superName)) {
+                return true
+            }
+            if (ext.interfaceName && interfaces != null && interfaces.contains(ext.interfaceName)) {
+                return true
+            }
+        }
+        return false
+    }
+
     class ScanClassVisitor extends ClassVisitor {
         private String filePath
         private def found = false
+        private String className
+        /** 匹配到的配置 */
+        private List<InjectPluginInfo> matchedInfos = []
+        /** 匹配到的缓存项 */
+        private List<ScanJarEntity.Harvest> matchedHarvests = []
+        /** 注册类上的任务元数据 */
+        private List<TaskNode> taskNodes
 
         ScanClassVisitor(int api, ClassVisitor cv, String filePath) {
             super(api, cv)
@@ -168,6 +258,7 @@ class CodeScanProcessor {
         void visit(int version, int access, String name, String signature,
                    String superName, String[] interfaces) {
             super.visit(version, access, name, signature, superName, interfaces)
+            className = name
             // 抽象类、接口、非public等类无法调用其无参构造方法
             if (is(access, Opcodes.ACC_ABSTRACT)
                     || is(access, Opcodes.ACC_INTERFACE)
@@ -180,9 +271,10 @@ class CodeScanProcessor {
                     if (superName != 'java/lang/Object' && !ext.superClassNames.isEmpty()) {
                         for (int i = 0; i < ext.superClassNames.size(); i++) {
                             if (ext.superClassNames.get(i) == superName) {
-                                ext.classList.add(name) // 需要把对象注入到管理类 就是fileContainsInitClass
+                                // 需要把对象注入到管理类 就是fileContainsInitClass，在 visitEnd 中与任务元数据一起记录
                                 found = true
-                                addToCacheMap(superName, name, filePath)
+                                matchedInfos.add(ext)
+                                matchedHarvests.add(addToCacheMap(superName, name, filePath))
                                 return
                             }
                         }
@@ -190,8 +282,8 @@ class CodeScanProcessor {
                     if (ext.interfaceName && interfaces != null) {
                         interfaces.each { itName ->
                             if (itName == ext.interfaceName) {
-                                ext.classList.add(name) // 需要把对象注入到管理类  就是fileContainsInitClass
-                                addToCacheMap(itName, name, filePath)
+                                matchedInfos.add(ext)
+                                matchedHarvests.add(addToCacheMap(itName, name, filePath))
                                 found = true
                             }
                         }
@@ -199,20 +291,102 @@ class CodeScanProcessor {
                 }
             }
         }
+
+        @Override
+        AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+            if (desc == TASK_REGISTER_INFO_DESC) {
+                taskNodes = []
+                return new TaskRegisterInfoVisitor(taskNodes)
+            }
+            return super.visitAnnotation(desc, visible)
+        }
+
+        @Override
+        void visitEnd() {
+            super.visitEnd()
+            if (found) {
+                matchedInfos.each { ext -> ext.addRegisterClass(className, taskNodes) }
+                matchedHarvests.each { harvest ->
+                    if (harvest) harvest.taskNodes = taskNodes
+                }
+            }
+        }
+    }
+
+    /**
+     * 读取 @TaskRegisterInfo({@TaskAnnotation(...), ...})
+     */
+    static class TaskRegisterInfoVisitor extends AnnotationVisitor {
+        private List<TaskNode> taskNodes
+
+        TaskRegisterInfoVisitor(List<TaskNode> taskNodes) {
+            super(Opcodes.ASM5)
+            this.taskNodes = taskNodes
+        }
+
+        @Override
+        AnnotationVisitor visitArray(String name) {
+            return new AnnotationVisitor(Opcodes.ASM5) {
+                @Override
+                AnnotationVisitor visitAnnotation(String n, String desc) {
+                    TaskNode node = new TaskNode()
+                    taskNodes.add(node)
+                    return new TaskAnnotationVisitor(node)
+                }
+            }
+        }
+    }
+
+    /**
+     * 读取单个 @TaskAnnotation，processor 生成时所有属性都已显式写出
+     */
+    static class TaskAnnotationVisitor extends AnnotationVisitor {
+        private TaskNode node
+
+        TaskAnnotationVisitor(TaskNode node) {
+            super(Opcodes.ASM5)
+            this.node = node
+        }
+
+        @Override
+        void visit(String name, Object value) {
+            switch (name) {
+                case 'name': node.name = value; break
+                case 'background': node.background = value; break
+                case 'idle': node.idle = value; break
+                case 'dispatcher': node.dispatcher = value; break
+                case 'priority': node.priority = value; break
+                case 'cost': node.cost = value; break
+                case 'lazy': node.lazy = value; break
+            }
+        }
+
+        @Override
+        AnnotationVisitor visitArray(String name) {
+            List<String> values = name == 'process' ? node.process : (name == 'depends' ? node.depends : [])
+            values.clear()
+            return new AnnotationVisitor(Opcodes.ASM5) {
+                @Override
+                void visit(String n, Object value) {
+                    values.add((String) value)
+                }
+            }
+        }
     }
 
     /**
-     * 扫描到的类添加到map
+     * 扫描到的类添加到map，jar 以 jar 路径为 key，目录中的类以 class 文件路径为 key
      * @param interfaceName
      * @param name
      * @param srcFilePath
      */
-    private void addToCacheMap(String interfaceName, String name, String srcFilePath) {
-        if (!srcFilePath.endsWith(".jar") || cacheMap == null) return
+    private ScanJarEntity.Harvest addToCacheMap(String interfaceName, String name, String srcFilePath) {
+        if (!srcFilePath || !(srcFilePath.endsWith(".jar") || srcFilePath.endsWith(".class")) || cacheMap == null) return null
         def jarHarvest = cacheMap.get(srcFilePath)
         if (!jarHarvest) {
             jarHarvest = new ScanJarEntity()
-            cacheMap.put(srcFilePath, jarHarvest)
+            def previous = cacheMap.putIfAbsent(srcFilePath, jarHarvest)
+            if (previous != null) jarHarvest = previous
         }
         if (name) {
             ScanJarEntity.Harvest classInfo = new ScanJarEntity.Harvest()
@@ -220,11 +394,9 @@ class CodeScanProcessor {
             classInfo.setInterfaceName(interfaceName)
             classInfo.setClassName(name)
             jarHarvest.harvestList.add(classInfo)
+            return classInfo
         }
-    }
-
-    boolean isCachedJarContainsInitClass(String filePath) {
-        return cachedJarContainsInitClass.contains(filePath)
+        return null
     }
 
     /**
@@ -234,31 +406,96 @@ class CodeScanProcessor {
      * @return 是否存在缓存
      */
     boolean hitCache(File jarFile, File destFile) {
-        def jarFilePath = jarFile.absolutePath
-        if (cacheMap != null) {
-            ScanJarEntity scanJarHarvest = cacheMap.get(jarFilePath)
+        if (scanCache != null) {
+            ScanJarEntity scanJarHarvest = scanCache.get(jarFile)
             if (scanJarHarvest) {
-                infoList.each { info ->
-                    scanJarHarvest.harvestList.each { harvest ->
-                        if (harvest.isInitClass) {
-                            if (info.initClassName == harvest.className) {
-                                info.fileContainsInitClass = destFile
-                                cachedJarContainsInitClass.add(jarFilePath)
-                            }
-                        } else if (info.interfaceName == harvest.interfaceName) {
-                            info.classList.add(harvest.className)
-                        }
+                applyHarvest(scanJarHarvest, jarFile, destFile)
+                return true
+            }
+        }
+        return false
+    }
 
-                        for (int i = 0; i < info.superClassNames.size(); i++) {
-                            if (info.superClassNames.get(i) == harvest.interfaceName) {
-                                info.classList.add(harvest.className)
-                            }
-                        }
+    /**
+     * 增量构建时恢复目录中未变化的 class 文件的扫描结果
+     * @param root 输入目录，以分隔符结尾
+     * @param token 工程构建目录中记录的该目录上次的构建标识
+     * @param destRoot 输出目录
+     * @param changedPaths 本次变化的文件路径，这些文件重新扫描
+     * @return 是否全部恢复。缓存中没有与 token 对应的该目录的扫描结果（缓存被删除、换了机器、关闭过缓存），
+     * 或有未变化文件的扫描结果缺失时返回 false，此时不恢复任何结果，需要全量扫描目录
+     */
+    boolean hitDirectoryCache(String root, String token, File destRoot, Set<String> changedPaths) {
+        if (scanCache == null || token == null || token != scanCache.getDirectoryToken(root)) {
+            return false
+        }
+        Map<File, ScanJarEntity> hits = new LinkedHashMap<>()
+        List<String> removed = []
+        for (String path : scanCache.paths(root)) {
+            if (!path.endsWith(".class") || changedPaths.contains(path)) {
+                continue
+            }
+            File file = new File(path)
+            if (!file.isFile()) {
+                removed.add(path)
+                continue
+            }
+            ScanJarEntity entity = scanCache.get(file)
+            if (entity == null) {
+                return false
+            }
+            hits.put(file, entity)
+        }
+        removed.each { scanCache.remove(it) }
+        hits.each { File file, ScanJarEntity entity ->
+            applyHarvest(entity, file, new File(destRoot, file.path.substring(root.length())))
+        }
+        return true
+    }
+
+    /**
+     * 移除文件的扫描结果
+     * @param srcFilePath jar 或 class 文件路径
+     */
+    void removeCache(String srcFilePath) {
+        if (scanCache != null) {
+            cacheMap.remove(srcFilePath)
+            scanCache.remove(srcFilePath)
+        }
+    }
+
+    /**
+     * 将本次扫描的结果写入缓存文件
+     */
+    void saveCache() {
+        if (scanCache == null) return
+        cacheMap.each { String path, ScanJarEntity entity ->
+            scanCache.put(path, entity)
+        }
+        scanCache.save()
+    }
+
+    /**
+     * 将缓存的扫描结果添加到 class list 并设置 fileContainsInitClass
+     */
+    private void applyHarvest(ScanJarEntity scanJarHarvest, File srcFile, File destFile) {
+        infoList.each { info ->
+            scanJarHarvest.harvestList.each { harvest ->
+                if (harvest.isInitClass) {
+                    if (info.initClassName == harvest.className) {
+                        info.fileContainsInitClass = destFile
+                        info.initClassSource = srcFile
+                    }
+                } else if (info.interfaceName == harvest.interfaceName) {
+                    info.addRegisterClass(harvest.className, harvest.taskNodes)
+                }
+
+                for (int i = 0; i < info.superClassNames.size(); i++) {
+                    if (info.superClassNames.get(i) == harvest.interfaceName) {
+                        info.addRegisterClass(harvest.className, harvest.taskNodes)
                     }
                 }
-                return true
             }
         }
-        return false
     }
 }
\ No newline at end of file
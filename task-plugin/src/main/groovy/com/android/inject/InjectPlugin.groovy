@@ -13,6 +13,7 @@ import org.gradle.api.Project
  */
 public class InjectPlugin implements Plugin<Project> {
     public static final String EXT_NAME = 'inject_plugin'
+    private static final String INSTRUMENTATION_CLASS = 'com.android.inject.InjectInstrumentation'
 
     @Override
     public void apply(Project project) {
@@ -21,6 +22,12 @@ public class InjectPlugin implements Plugin<Project> {
         project.extensions.create(EXT_NAME, InjectPluginConfig)
         if (isApp) {
             println 'project(' + project.name + ') apply inject-plugin plugin'
+            if (isInstrumentationSupported(project)) {
+                // AGP 7+ 使用 AsmClassVisitorFactory，配置在任务执行时读取。
+                // InjectInstrumentation 在单独的 agp7 源码集中针对 AGP 7 编译，这里不直接引用
+                Class.forName(INSTRUMENTATION_CLASS).apply(project, project.extensions.getByName(EXT_NAME) as InjectPluginConfig)
+                return
+            }
             def android = project.extensions.getByType(AppExtension)
             def transformImpl = new InjectPluginTransform(project)
             android.registerTransform(transformImpl)
@@ -30,6 +37,24 @@ public class InjectPlugin implements Plugin<Project> {
         }
     }
 
+    /**
+     * 当前构建是否可以使用 AsmClassVisitorFactory，可通过 gradle 属性 injectPlugin.useTransform=true 强制使用 Transform
+     */
+    static boolean isInstrumentationSupported(Project project) {
+        if (project.findProperty('injectPlugin.useTransform')?.toString() == 'true') {
+            return false
+        }
+        if (project.extensions.findByName('androidComponents') == null) {
+            return false
+        }
+        try {
+            Class.forName('com.android.build.api.instrumentation.AsmClassVisitorFactory', false, InjectPlugin.classLoader)
+            return true
+        } catch (ClassNotFoundException ignored) {
+            return false
+        }
+    }
+
     static void init(Project project, InjectPluginTransform transformImpl) {
         InjectPluginConfig config = project.extensions.findByName(EXT_NAME) as InjectPluginConfig
         config.project = project
@@ -21,24 +21,7 @@ class InjectPluginConfig {
 
     void convertConfig() {
         registerInfo.each { map ->
-            InjectPluginInfo info = new InjectPluginInfo()
-            info.interfaceName = map.get('scanInterface')
-            def superClasses = map.get('scanSuperClasses')
-            if (!superClasses) {
-                superClasses = new ArrayList<String>()
-            } else if (superClasses instanceof String) {
-                ArrayList<String> superList = new ArrayList<>()
-                superList.add(superClasses)
-                superClasses = superList
-            }
-            info.superClassNames = superClasses
-            info.initClassName = map.get('codeInsertToClassName') //代码注入的类
-            info.initMethodName = map.get('codeInsertToMethodName') //代码注入的方法（默认为static块）
-            info.registerMethodName = map.get('registerMethodName') //生成的代码所调用的方法
-            info.registerClassName = map.get('registerClassName') //注册方法所在的类
-            info.include = map.get('include')
-            info.exclude = map.get('exclude')
-            info.init()
+            InjectPluginInfo info = toInfo(map)
             if (info.validate())
                 list.add(info)
             else {
@@ -50,11 +33,46 @@ class InjectPluginConfig {
         if (cacheEnabled) {
             checkRegisterInfo()
         } else {
+            // 扫描结果缓存由所有工程共享，关闭缓存只是不再读写，不删除
             deleteFile(InjectPluginHelper.getRegisterInfoCacheFile(project))
-            deleteFile(InjectPluginHelper.getRegisterCacheFile(project))
         }
     }
 
+    /**
+     * 将 registerInfo 中的一项配置转换为 InjectPluginInfo
+     * @param map 配置项
+     * @return InjectPluginInfo，需调用 validate 检查
+     */
+    static InjectPluginInfo toInfo(Map<String, Object> map) {
+        InjectPluginInfo info = new InjectPluginInfo()
+        info.interfaceName = map.get('scanInterface')
+        def superClasses = map.get('scanSuperClasses')
+        if (!superClasses) {
+            superClasses = new ArrayList<String>()
+        } else if (superClasses instanceof String) {
+            ArrayList<String> superList = new ArrayList<>()
+            superList.add(superClasses)
+            superClasses = superList
+        } else {
+            // init 会修改列表，复制一份，避免改动配置本身
+            superClasses = new ArrayList<String>(superClasses)
+        }
+        info.superClassNames = superClasses
+        info.initClassName = map.get('codeInsertToClassName') //代码注入的类
+        info.initMethodName = map.get('codeInsertToMethodName') //代码注入的方法（默认为static块）
+        info.registerMethodName = map.get('registerMethodName') //生成的代码所调用的方法
+        info.registerClassName = map.get('registerClassName') //注册方法所在的类
+        info.scheduleMethodName = map.get('scheduleMethodName') //编译期任务图注册方法，不配置则运行时构建
+        info.include = copyList(map.get('include'))
+        info.exclude = copyList(map.get('exclude'))
+        info.init()
+        return info
+    }
+
+    private static ArrayList<String> copyList(Object list) {
+        return list == null ? null : new ArrayList<String>(list as Collection<String>)
+    }
+
     private void checkRegisterInfo() {
         def registerInfo = InjectPluginHelper.getRegisterInfoCacheFile(project)
         def listInfo = list.toString()
@@ -71,9 +89,7 @@ class InjectPluginConfig {
         } else {
             project.logger.error('inject-plugin read registerInfo error--------')
         }
-        if (!sameInfo) {
-            deleteFile(InjectPluginHelper.getRegisterCacheFile(project))
-        }
+        // 扫描结果缓存文件名包含配置的 md5，配置改动后自然使用新的缓存文件，无需删除
         if (registerInfo.canWrite()) {
             registerInfo.write(listInfo)
         } else {
@@ -1,10 +1,8 @@
 package com.android.inject
 
-import com.google.gson.Gson
+import org.apache.commons.codec.digest.DigestUtils
 import org.gradle.api.Project
 
-import java.lang.reflect.Type
-
 import static com.android.builder.model.AndroidProject.FD_INTERMEDIATES
 
 /**
@@ -32,60 +30,61 @@ class InjectPluginHelper {
     }
 
     /**
-     * 缓存扫描到结果的文件
+     * 缓存扫描到结果的文件，位于 gradle 用户目录，clean 和工程路径变化后仍然保留。
+     * 扫描结果与扫描配置有关，不同配置使用不同的文件
      * @param project
+     * @param infoList 扫描配置
      * @return File
      */
-    static File getRegisterCacheFile(Project project) {
-        String baseDir = getCacheFileDir(project)
+    static File getRegisterCacheFile(Project project, List<InjectPluginInfo> infoList) {
+        String baseDir = project.gradle.gradleUserHomeDir.absolutePath + File.separator + "caches" + File.separator + CACHE_INFO_DIR + File.separator
         if (mkdirs(baseDir)) {
-            return new File(baseDir + "register-cache.json")
+            return new File(baseDir + "scan-" + DigestUtils.md5Hex(infoList.toString()) + ".bin")
         } else {
             throw new FileNotFoundException("Not found  path:" + baseDir)
         }
     }
     /**
-     * 将扫描到的结果缓存起来
-     * @param cacheFile
-     * @param harvests
+     * 任务图 JSON 文件，按注入类命名
+     * @param dir 输出目录
+     * @param info 扫描配置
+     * @return File
      */
-    static void cacheRegisterHarvest(File cacheFile, String harvests) {
-        if (!cacheFile || !harvests)
-            return
-        cacheFile.getParentFile().mkdirs()
-        if (!cacheFile.exists())
-            cacheFile.createNewFile()
-        cacheFile.write(harvests)
-    }
-
-    private static String getCacheFileDir(Project project) {
-        return project.getBuildDir().absolutePath + File.separator + FD_INTERMEDIATES + File.separator + CACHE_INFO_DIR + File.separator
+    static File getTaskGraphFile(File dir, InjectPluginInfo info) {
+        String className = info.initClassName.replace('/', '.')
+        String simpleName = className.substring(className.lastIndexOf('.') + 1)
+        return new File(dir, "task-graph-" + simpleName + ".json")
     }
 
     /**
-     * 读取文件内容并创建Map
-     * @param file 缓存文件
-     * @param type map的类型
-     * @return
+     * 记录上次注入内容指纹的文件
+     * @param project
+     * @return File
      */
-    static Map readToMap(File file, Type type) {
-        Map map = null
-        if (file.exists()) {
-            if (type) {
-                def text = file.text
-                if (text) {
-                    try {
-                        map = new Gson().fromJson(text, type)
-                    } catch (Exception e) {
-                        e.printStackTrace()
-                    }
-                }
-            }
+    static File getInjectStateFile(Project project) {
+        String baseDir = getCacheFileDir(project)
+        if (mkdirs(baseDir)) {
+            return new File(baseDir + "inject-state.properties")
+        } else {
+            throw new FileNotFoundException("Not found  path:" + baseDir)
         }
-        if (map == null) {
-            map = new HashMap()
+    }
+
+    static Properties readProperties(File file) {
+        Properties properties = new Properties()
+        if (file.exists()) {
+            file.withInputStream { properties.load(it) }
         }
-        return map
+        return properties
+    }
+
+    static void writeProperties(File file, Properties properties) {
+        file.getParentFile().mkdirs()
+        file.withOutputStream { properties.store(it, null) }
+    }
+
+    private static String getCacheFileDir(Project project) {
+        return project.getBuildDir().absolutePath + File.separator + FD_INTERMEDIATES + File.separator + CACHE_INFO_DIR + File.separator
     }
 
     /**
@@ -1,5 +1,7 @@
 package com.android.inject
 
+import org.apache.commons.codec.digest.DigestUtils
+
 import java.util.regex.Pattern
 
 /**
@@ -20,6 +22,7 @@ class InjectPluginInfo {
     String initMethodName = ''
     String registerClassName = ''
     String registerMethodName = ''
+    String scheduleMethodName = ''
     ArrayList<String> include = []
     ArrayList<String> exclude = []
 
@@ -28,15 +31,64 @@ class InjectPluginInfo {
     ArrayList<Pattern> excludePatterns = []
 
     /** initClassName的class文件或含有initClassName类的jar文件 */
-    File fileContainsInitClass
+    volatile File fileContainsInitClass
+    /** initClassName 的来源文件（class 文件或 jar），注入前从这里恢复未注入的版本 */
+    volatile File initClassSource
+    /** 本次构建是否重新复制了 initClassName 所在的文件，为 true 时必须重新注入 */
+    volatile boolean initClassChanged
+    /** 扫描到的注册类，并发扫描时通过 addRegisterClass 写入，扫描完成后排序 */
     ArrayList<String> classList = new ArrayList<>()
+    /** 注册类 -> 注册类中的任务元数据 */
+    Map<String, List<TaskNode>> taskNodeMap = new HashMap<>()
+    /** 编译期构建的任务图，scheduleMethodName 不为空时注入 */
+    TaskGraphCompiler.Schedule schedule
 
 
     InjectPluginInfo(){}
 
     void reset() {
         fileContainsInitClass = null
+        initClassSource = null
+        initClassChanged = false
         classList.clear()
+        taskNodeMap.clear()
+        schedule = null
+    }
+
+    /**
+     * 记录扫描到的注册类，可在多个扫描线程并发调用
+     * @param className 注册类
+     * @param taskNodes 注册类中的任务元数据，可为 null
+     */
+    synchronized void addRegisterClass(String className, List<TaskNode> taskNodes) {
+        classList.add(className)
+        if (taskNodes != null) {
+            taskNodeMap.put(className, taskNodes)
+        }
+    }
+
+    /**
+     * 扫描完成后按类名排序，注册顺序与 jar 的扫描先后无关，保证构建结果可复现
+     */
+    synchronized void sortClassList() {
+        classList.sort(true)
+    }
+
+    /**
+     * 注入内容的指纹，注册类和任务图都不变时无需重新注入
+     * @return 指纹
+     */
+    String fingerprint() {
+        StringBuilder sb = new StringBuilder()
+        classList.each { sb.append(it).append('\n') }
+        if (schedule != null) {
+            sb.append(TaskGraphCompiler.encode(schedule.inDegree)).append('\n')
+            sb.append(TaskGraphCompiler.encode(schedule.dependentsOffset)).append('\n')
+            sb.append(TaskGraphCompiler.encode(schedule.dependents)).append('\n')
+            sb.append(TaskGraphCompiler.encodeProcessGroups(schedule.processGroups)).append('\n')
+            sb.append(TaskGraphCompiler.encode(schedule.taskProcessGroup))
+        }
+        return DigestUtils.md5Hex(sb.toString())
     }
 
     boolean validate() {
@@ -57,6 +109,9 @@ class InjectPluginInfo {
         sb.append('\n\t').append('codeInsertToMethodName').append('\t=\t').append(initMethodName)
         sb.append('\n\t').append('registerMethodName').append('\t\t=\tpublic static void ')
                 .append(registerClassName).append('.').append(registerMethodName)
+        if (scheduleMethodName) {
+            sb.append('\n\t').append('scheduleMethodName').append('\t\t=\t').append(scheduleMethodName)
+        }
         sb.append('\n\t').append('include').append(' = [')
         include.each { i ->
             sb.append('\n\t\t\'').append(i).append('\'')
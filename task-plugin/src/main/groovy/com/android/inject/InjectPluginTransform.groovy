@@ -2,12 +2,15 @@ package com.android.inject
 
 import com.android.build.api.transform.*
 import com.android.build.gradle.internal.pipeline.TransformManager
-import com.google.gson.Gson
-import com.google.gson.reflect.TypeToken
 import org.apache.commons.codec.digest.DigestUtils
 import org.apache.commons.io.FileUtils
 import org.gradle.api.Project
 
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+
 /**
  * ClassName: InjectPluginTransform
  * Description: 注入插件转换
@@ -16,6 +19,9 @@ import org.gradle.api.Project
  */
 class InjectPluginTransform extends Transform {
 
+    /** 注入状态文件中记录目录构建标识的键前缀 */
+    private static final String DIRECTORY_TOKEN_PREFIX = 'directory:'
+
     Project project
     InjectPluginConfig config;
 
@@ -69,68 +75,78 @@ class InjectPluginTransform extends Transform {
         def cacheEnabled = config.cacheEnabled
         println("inject-plugin-----------isIncremental:${isIncremental}--------config.cacheEnabled:${cacheEnabled}--------------------\n")
 
-        File jarManagerfile = null
-        Map<String, ScanJarEntity> cacheMap = null
-        File cacheFile = null
-        Gson gson = null
-
+        ScanCache scanCache = null
         if (cacheEnabled) { //开启了缓存
-            gson = new Gson()
-            cacheFile = InjectPluginHelper.getRegisterCacheFile(project)
-            if (clearCache && cacheFile.exists())
-                cacheFile.delete()
-            cacheMap = InjectPluginHelper.readToMap(cacheFile, new TypeToken<HashMap<String, ScanJarEntity>>() {
-            }.getType())
+            // 缓存按文件内容命中，全量构建也可以使用
+            scanCache = ScanCache.open(InjectPluginHelper.getRegisterCacheFile(project, config.list))
         }
 
-        CodeScanProcessor scanProcessor = new CodeScanProcessor(config.list, cacheMap)
+        CodeScanProcessor scanProcessor = new CodeScanProcessor(config.list, scanCache)
 
-        // 遍历输入文件
-        inputs.each { TransformInput input ->
-            // 遍历jar
-            input.jarInputs.each { JarInput jarInput ->
-                if (jarInput.status != Status.NOTCHANGED && cacheMap) {
-                    cacheMap.remove(jarInput.file.absolutePath)
+        // 上次注入的指纹和各目录的构建标识，记录在工程的构建目录中
+        File injectStateFile = InjectPluginHelper.getInjectStateFile(project)
+        Properties injectState = new Properties()
+        if (!cacheEnabled) {
+            // 关闭缓存期间扫描结果不写入缓存，删除旧的记录，重新开启缓存后不会与过期的缓存匹配
+            FileUtils.deleteQuietly(injectStateFile)
+            injectStateFile = null
+        } else if (!clearCache) {
+            injectState = InjectPluginHelper.readProperties(injectStateFile)
+        }
+        String buildToken = UUID.randomUUID().toString()
+
+        // 每个 jar 和目录的扫描、复制互不依赖，在线程池中并发执行
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())
+        List<Future<?>> futures = []
+        try {
+            // 遍历输入文件
+            inputs.each { TransformInput input ->
+                // 遍历jar
+                input.jarInputs.each { JarInput jarInput ->
+                    if (jarInput.status == Status.REMOVED) {
+                        // jar 已不存在，只删除上次的产物，不再扫描
+                        scanProcessor.removeCache(jarInput.file.absolutePath)
+                        FileUtils.deleteQuietly(getDestFile(jarInput, outputProvider))
+                        return
+                    }
+                    futures.add(executor.submit {
+                        scanJar(jarInput, outputProvider, scanProcessor)
+                    })
                 }
-                scanJar(jarInput, outputProvider, scanProcessor)
-            }
-            // 遍历目录
-            input.directoryInputs.each { DirectoryInput directoryInput ->
-                long dirTime = System.currentTimeMillis();
-                // 获得产物的目录
-                File dest = outputProvider.getContentLocation(directoryInput.name, directoryInput.contentTypes, directoryInput.scopes, Format.DIRECTORY)
-                String root = directoryInput.file.absolutePath
-                if (!root.endsWith(File.separator))
-                    root += File.separator
-                //遍历目录下的每个文件
-                directoryInput.file.eachFileRecurse { File file ->
-                    def path = file.absolutePath.replace(root, '')
-                    if (file.isFile()) {
-                        def entryName = path
-                        if (!leftSlash) {
-                            entryName = entryName.replaceAll("\\\\", "/")
+                // 遍历目录
+                input.directoryInputs.each { DirectoryInput directoryInput ->
+                    futures.add(executor.submit {
+                        String root = getDirectoryRoot(directoryInput)
+                        String token = injectState.getProperty(DIRECTORY_TOKEN_PREFIX + root)
+                        if (!isIncremental || scanCache == null
+                                || !scanDirectoryIncremental(directoryInput, outputProvider, scanProcessor, leftSlash, token)) {
+                            if (isIncremental) {
+                                // 缓存中没有该目录上次的扫描结果，增量恢复会丢失未变化文件中的注册类，改为全量扫描
+                                println "inject-plugin scan cache missed, rescan directory. path=${root}"
+                                FileUtils.deleteDirectory(getDirectoryDest(directoryInput, outputProvider))
+                            }
+                            scanDirectory(directoryInput, outputProvider, scanProcessor, leftSlash)
                         }
-                        scanProcessor.checkInitClass(entryName, new File(dest.absolutePath + File.separator + path))
-                        if (scanProcessor.shouldProcessClass(entryName)) {
-                            scanProcessor.scanClass(file)
+                        if (scanCache != null) {
+                            scanCache.putDirectoryToken(root, buildToken)
+                            injectState.setProperty(DIRECTORY_TOKEN_PREFIX + root, buildToken)
                         }
-                    }
+                    })
                 }
-                long scanTime = System.currentTimeMillis();
-                // 处理完后拷到目标文件
-                FileUtils.copyDirectory(directoryInput.file, dest)
-                println "inject-plugin cost time: ${System.currentTimeMillis() - dirTime}, scan time: ${scanTime - dirTime}. path=${root}"
             }
+            awaitAll(futures)
+        } finally {
+            executor.shutdownNow()
         }
+        // 注册顺序与扫描完成的先后无关
+        config.list.each { ext -> ext.sortClassList() }
 
-        if (cacheMap != null && cacheFile && gson) {
-            def json = gson.toJson(cacheMap)
-            InjectPluginHelper.cacheRegisterHarvest(cacheFile, json)
-        }
+        scanProcessor.saveCache()
 
         def scanFinishTime = System.currentTimeMillis()
         project.logger.error("register scan all class cost time: " + (scanFinishTime - time) + " ms")
 
+        // 注册类和任务图不变且注入类所在文件未重新复制时跳过注入
         config.list.each { ext ->
             if (ext.fileContainsInitClass) {
                 println('')
@@ -141,17 +157,136 @@ class InjectPluginTransform extends Transform {
                     ext.classList.each {
                         println(it)
                     }
-                    CodeInjectProcessor.insertInitCodeTo(ext)
+                    if (ext.scheduleMethodName) {
+                        // 合并所有模块的任务构建任务图，循环依赖或未知依赖直接构建失败
+                        ext.schedule = TaskGraphCompiler.compile(ext)
+                        if (ext.schedule != null) {
+                            TaskGraphCompiler.writeJson(ext.schedule, InjectPluginHelper.getTaskGraphFile(
+                                    new File(project.buildDir, "outputs/inject-plugin/${context.variantName}"), ext))
+                        }
+                    }
+                    def fingerprint = ext.fingerprint()
+                    if (!ext.initClassChanged && ext.fileContainsInitClass.exists()
+                            && fingerprint == injectState.getProperty(ext.initClassName)) {
+                        println("registered classes not changed, skip insert register code")
+                    } else {
+                        if (!ext.initClassChanged && ext.initClassSource) {
+                            // 目标文件是上次注入后的版本，先恢复为未注入的版本，避免重复注入
+                            FileUtils.copyFile(ext.initClassSource, ext.fileContainsInitClass)
+                        }
+                        CodeInjectProcessor.insertInitCodeTo(ext)
+                        injectState.setProperty(ext.initClassName, fingerprint)
+                    }
                 }
             } else {
                 project.logger.error("The specified register class not found:" + ext.registerClassName)
             }
         }
+        if (injectStateFile) {
+            InjectPluginHelper.writeProperties(injectStateFile, injectState)
+        }
         def finishTime = System.currentTimeMillis()
         project.logger.error("register insert code cost time: " + (finishTime - scanFinishTime) + " ms")
         project.logger.error("register cost time: " + (finishTime - time) + " ms")
     }
 
+    /**
+     * 等待所有扫描完成，任一扫描失败时抛出其异常
+     */
+    private static void awaitAll(List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            try {
+                future.get()
+            } catch (ExecutionException e) {
+                throw e.cause
+            }
+        }
+    }
+
+    void scanDirectory(DirectoryInput directoryInput, TransformOutputProvider outputProvider,
+                       CodeScanProcessor scanProcessor, boolean leftSlash) {
+        long dirTime = System.currentTimeMillis();
+        // 获得产物的目录
+        File dest = getDirectoryDest(directoryInput, outputProvider)
+        String root = getDirectoryRoot(directoryInput)
+        //遍历目录下的每个文件
+        directoryInput.file.eachFileRecurse { File file ->
+            def path = file.absolutePath.replace(root, '')
+            if (file.isFile()) {
+                def entryName = path
+                if (!leftSlash) {
+                    entryName = entryName.replaceAll("\\\\", "/")
+                }
+                scanProcessor.checkInitClass(entryName, new File(dest.absolutePath + File.separator + path), file.absolutePath)
+                if (scanProcessor.shouldProcessClass(entryName)) {
+                    scanProcessor.scanClass(file)
+                }
+            }
+        }
+        long scanTime = System.currentTimeMillis();
+        // 处理完后拷到目标文件
+        FileUtils.copyDirectory(directoryInput.file, dest)
+        println "inject-plugin cost time: ${System.currentTimeMillis() - dirTime}, scan time: ${scanTime - dirTime}. path=${root}"
+    }
+
+    /**
+     * 增量处理目录：只扫描、复制新增和修改的文件，删除已移除文件的产物，其余文件的扫描结果从缓存恢复
+     * @param token 工程构建目录中记录的该目录上次的构建标识
+     * @return 缓存中没有该目录上次的扫描结果时不做任何处理，返回 false，需要全量扫描
+     */
+    boolean scanDirectoryIncremental(DirectoryInput directoryInput, TransformOutputProvider outputProvider,
+                                     CodeScanProcessor scanProcessor, boolean leftSlash, String token) {
+        long dirTime = System.currentTimeMillis();
+        File dest = getDirectoryDest(directoryInput, outputProvider)
+        String root = getDirectoryRoot(directoryInput)
+        Map<File, Status> changedFiles = directoryInput.changedFiles
+        Set<String> changedPaths = new HashSet<>()
+        changedFiles.each { File file, Status status ->
+            if (status != Status.NOTCHANGED) {
+                changedPaths.add(file.absolutePath)
+            }
+        }
+        if (!scanProcessor.hitDirectoryCache(root, token, dest, changedPaths)) {
+            return false
+        }
+        changedPaths.each { scanProcessor.removeCache(it) }
+        int count = 0
+        changedFiles.each { File file, Status status ->
+            if (status == Status.NOTCHANGED || !file.absolutePath.startsWith(root)) {
+                return
+            }
+            def path = file.absolutePath.substring(root.length())
+            File destFile = new File(dest, path)
+            if (status == Status.REMOVED) {
+                FileUtils.deleteQuietly(destFile)
+            } else if (file.isFile()) {
+                def entryName = leftSlash ? path : path.replaceAll("\\\\", "/")
+                scanProcessor.checkInitClass(entryName, destFile, file.absolutePath)
+                if (scanProcessor.shouldProcessClass(entryName)) {
+                    scanProcessor.scanClass(file)
+                }
+                FileUtils.copyFile(file, destFile)
+            }
+            count++
+        }
+        println "inject-plugin incremental cost time: ${System.currentTimeMillis() - dirTime}, changed files: ${count}. path=${root}"
+        return true
+    }
+
+    /**
+     * 目录的绝对路径，以分隔符结尾
+     */
+    static String getDirectoryRoot(DirectoryInput directoryInput) {
+        String root = directoryInput.file.absolutePath
+        if (!root.endsWith(File.separator))
+            root += File.separator
+        return root
+    }
+
+    static File getDirectoryDest(DirectoryInput directoryInput, TransformOutputProvider outputProvider) {
+        return outputProvider.getContentLocation(directoryInput.name, directoryInput.contentTypes, directoryInput.scopes, Format.DIRECTORY)
+    }
+
     void scanJar(JarInput jarInput, TransformOutputProvider outputProvider, CodeScanProcessor scanProcessor) {
 
         // 获得输入文件
@@ -159,11 +294,18 @@ class InjectPluginTransform extends Transform {
         // 遍历jar的字节码类文件，找到需要自动注册的类
         File dest = getDestFile(jarInput, outputProvider)
         long time = System.currentTimeMillis();
-        if (!scanProcessor.scanJar(src, dest) //直接读取了缓存，没有执行实际的扫描
-                // 此jar文件中不需要被注入代码
-                // 为了避免增量编译时代码注入重复，被注入代码的jar包每次都重新复制
-                && !scanProcessor.isCachedJarContainsInitClass(src.absolutePath)) {
-            // 不需要执行文件复制，直接返回
+        if (!scanProcessor.scanJar(src, dest)) {
+            // 直接读取了缓存，没有执行实际的扫描，jar 未变化且产物已存在时不需要执行文件复制。
+            // 被注入代码的jar包需要重新注入时，注入前会从 initClassSource 重新复制，避免重复注入
+            if (jarInput.status == Status.NOTCHANGED && dest.exists()) {
+                return
+            }
+            // 缓存按内容命中，但产物不存在（全量构建、路径变化）或是旧内容（回退、切换分支后 jar 变回以前的内容），
+            // 复制后需要重新注入
+            FileUtils.copyFile(src, dest)
+            config.list.each { ext ->
+                if (ext.fileContainsInitClass == dest) ext.initClassChanged = true
+            }
             return
         }
         println "inject-plugin cost time: " + (System.currentTimeMillis() - time) + " ms to scan jar file:" + dest.absolutePath
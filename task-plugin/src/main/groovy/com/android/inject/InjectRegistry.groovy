@@ -0,0 +1,123 @@
+package com.android.inject
+
+/**
+ * ClassName: InjectRegistry
+ * Description: 扫描任务的输出，记录每项配置扫描到的注册类和编译期任务图，供 InjectClassVisitorFactory 注入时读取
+ * Date: 2026/10/18 18:10
+ */
+class InjectRegistry {
+    private static final int VERSION = 1
+
+    /**
+     * 写入扫描结果，只写入找到注入类且扫描到注册类的配置
+     * @param file 输出文件
+     * @param infoList 扫描完成的配置
+     */
+    static void write(File file, List<InjectPluginInfo> infoList) {
+        List<InjectPluginInfo> found = infoList.findAll { it.fileContainsInitClass && !it.classList.isEmpty() }
+        file.getParentFile().mkdirs()
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))
+        try {
+            out.writeInt(VERSION)
+            out.writeInt(found.size())
+            found.each { info ->
+                out.writeUTF(info.interfaceName)
+                out.writeUTF(info.initClassName)
+                out.writeUTF(info.initMethodName)
+                out.writeUTF(info.registerClassName)
+                out.writeUTF(info.registerMethodName)
+                out.writeUTF(info.scheduleMethodName ?: '')
+                writeStrings(out, info.classList)
+                def schedule = info.schedule
+                out.writeBoolean(schedule != null)
+                if (schedule != null) {
+                    writeInts(out, schedule.inDegree)
+                    writeInts(out, schedule.dependentsOffset)
+                    writeInts(out, schedule.dependents)
+                    writeInts(out, schedule.taskProcessGroup)
+                    out.writeInt(schedule.processGroups.size())
+                    schedule.processGroups.each { group -> writeStrings(out, group) }
+                }
+            }
+        } finally {
+            out.close()
+        }
+    }
+
+    /**
+     * 读取扫描结果
+     * @param file write 写入的文件
+     * @return 注入类 -> 需要注入到该类的配置
+     */
+    static Map<String, List<InjectPluginInfo>> read(File file) {
+        Map<String, List<InjectPluginInfo>> registry = new HashMap<>()
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))
+        try {
+            if (input.readInt() != VERSION) {
+                throw new IOException('unsupported inject registry: ' + file)
+            }
+            int count = input.readInt()
+            for (int i = 0; i < count; i++) {
+                InjectPluginInfo info = new InjectPluginInfo()
+                info.interfaceName = input.readUTF()
+                info.initClassName = input.readUTF()
+                info.initMethodName = input.readUTF()
+                info.registerClassName = input.readUTF()
+                info.registerMethodName = input.readUTF()
+                info.scheduleMethodName = input.readUTF()
+                info.classList = readStrings(input)
+                if (input.readBoolean()) {
+                    def schedule = new TaskGraphCompiler.Schedule(tasks: [])
+                    schedule.inDegree = readInts(input)
+                    schedule.dependentsOffset = readInts(input)
+                    schedule.dependents = readInts(input)
+                    schedule.taskProcessGroup = readInts(input)
+                    int groupCount = input.readInt()
+                    schedule.processGroups = new ArrayList<>(groupCount)
+                    for (int j = 0; j < groupCount; j++) {
+                        schedule.processGroups.add(readStrings(input))
+                    }
+                    info.schedule = schedule
+                }
+                List<InjectPluginInfo> infos = registry.get(info.initClassName)
+                if (infos == null) {
+                    infos = []
+                    registry.put(info.initClassName, infos)
+                }
+                infos.add(info)
+            }
+        } finally {
+            input.close()
+        }
+        return registry
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) {
+        out.writeInt(values.size())
+        values.each { out.writeUTF(it) }
+    }
+
+    private static ArrayList<String> readStrings(DataInputStream input) {
+        int size = input.readInt()
+        ArrayList<String> values = new ArrayList<>(size)
+        for (int i = 0; i < size; i++) {
+            values.add(input.readUTF())
+        }
+        return values
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) {
+        out.writeInt(values.length)
+        for (int value : values) {
+            out.writeInt(value)
+        }
+    }
+
+    private static int[] readInts(DataInputStream input) {
+        int[] values = new int[input.readInt()]
+        for (int i = 0; i < values.length; i++) {
+            values[i] = input.readInt()
+        }
+        return values
+    }
+}
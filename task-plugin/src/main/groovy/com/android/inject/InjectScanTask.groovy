@@ -0,0 +1,124 @@
+package com.android.inject
+
+import org.gradle.api.DefaultTask
+import org.gradle.api.GradleException
+import org.gradle.api.file.ConfigurableFileCollection
+import org.gradle.api.file.DirectoryProperty
+import org.gradle.api.file.RegularFileProperty
+import org.gradle.api.tasks.CacheableTask
+import org.gradle.api.tasks.Classpath
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.OutputDirectory
+import org.gradle.api.tasks.OutputFile
+import org.gradle.api.tasks.TaskAction
+
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+
+/**
+ * ClassName: InjectScanTask
+ * Description: 扫描变体的全部 class，找出注册类和注入类并构建任务图，结果写入 registryFile。
+ * 只读取输入，不复制任何文件，输入不变时可从构建缓存恢复
+ * Date: 2026/10/18 18:10
+ */
+@CacheableTask
+abstract class InjectScanTask extends DefaultTask {
+
+    /** inject_plugin 中的 registerInfo */
+    @Input
+    List<Map<String, Object>> registerInfo = []
+
+    /** 依赖的 class 目录与 jar */
+    @Classpath
+    abstract ConfigurableFileCollection getClasses()
+
+    /** 工程自身编译任务输出的 class 目录 */
+    @Classpath
+    abstract ConfigurableFileCollection getProjectClasses()
+
+    @OutputFile
+    abstract RegularFileProperty getRegistryFile()
+
+    /** 任务图 JSON 的输出目录，供启动模拟器读取 */
+    @OutputDirectory
+    abstract DirectoryProperty getTaskGraphDir()
+
+    @TaskAction
+    void scan() {
+        long time = System.currentTimeMillis()
+        ArrayList<InjectPluginInfo> infoList = new ArrayList<>()
+        registerInfo.each { map ->
+            InjectPluginInfo info = InjectPluginConfig.toInfo(map)
+            if (info.validate()) {
+                infoList.add(info)
+            } else {
+                logger.error('inject-plugin config error: scanInterface, codeInsertToClassName and registerMethodName should not be null\n' + info.toString())
+            }
+        }
+        CodeScanProcessor scanProcessor = new CodeScanProcessor(infoList, null)
+        Set<File> projectDirs = projectClasses.files.findAll { it.isDirectory() }
+        if (projectDirs.isEmpty()) {
+            // 没有扫描工程自身的 class 时，工程中的注册类和任务会被静默遗漏
+            throw new GradleException("inject-plugin: no class directory found for ${path}, inputs: ${projectClasses.files}")
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())
+        List<Future<?>> futures = []
+        try {
+            (classes.files + projectDirs).each { File file ->
+                if (file.isDirectory()) {
+                    futures.add(executor.submit { scanDirectory(file, scanProcessor) })
+                } else if (file.name.endsWith('.jar')) {
+                    futures.add(executor.submit { scanProcessor.scanJar(file, file) })
+                }
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get()
+                } catch (ExecutionException e) {
+                    throw e.cause
+                }
+            }
+        } finally {
+            executor.shutdownNow()
+        }
+
+        infoList.each { ext ->
+            ext.sortClassList()
+            if (!ext.fileContainsInitClass) {
+                logger.error("The specified register class not found:" + ext.registerClassName)
+            } else if (ext.classList.isEmpty()) {
+                logger.error("No class implements found for interface:" + ext.interfaceName)
+            } else if (ext.scheduleMethodName) {
+                // 合并所有模块的任务构建任务图，循环依赖或未知依赖直接构建失败
+                ext.schedule = TaskGraphCompiler.compile(ext)
+                if (ext.schedule != null) {
+                    TaskGraphCompiler.writeJson(ext.schedule, InjectPluginHelper.getTaskGraphFile(taskGraphDir.get().asFile, ext))
+                }
+            }
+        }
+        InjectRegistry.write(registryFile.get().asFile, infoList)
+        logger.info("inject-plugin scan cost time: " + (System.currentTimeMillis() - time) + " ms")
+    }
+
+    private static void scanDirectory(File dir, CodeScanProcessor scanProcessor) {
+        String root = dir.absolutePath
+        if (!root.endsWith(File.separator))
+            root += File.separator
+        boolean leftSlash = File.separator == '/'
+        dir.eachFileRecurse { File file ->
+            if (file.isFile()) {
+                def entryName = file.absolutePath.substring(root.length())
+                if (!leftSlash) {
+                    entryName = entryName.replaceAll("\\\\", "/")
+                }
+                scanProcessor.checkInitClass(entryName, file, file.absolutePath)
+                if (scanProcessor.shouldProcessClass(entryName)) {
+                    scanProcessor.scanClass(file)
+                }
+            }
+        }
+    }
+}
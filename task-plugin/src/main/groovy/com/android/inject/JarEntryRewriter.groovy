@@ -0,0 +1,224 @@
+package com.android.inject
+
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.channels.FileChannel
+import java.nio.file.StandardOpenOption
+import java.util.zip.CRC32
+import java.util.zip.Deflater
+import java.util.zip.Inflater
+import java.util.zip.ZipEntry
+import java.util.zip.ZipException
+
+/**
+ * ClassName: JarEntryRewriter
+ * Description: 只重写 jar 中的一个 entry，其余 entry 的本地头和压缩数据原样复制，不解压也不重新压缩。
+ * entry 顺序、时间等元数据保持不变，相同输入得到相同输出。不支持 zip64，遇到时返回 false 由调用方处理
+ * Date: 2026/10/18 17:20
+ */
+class JarEntryRewriter {
+    private static final int LOCAL_HEADER_SIG = 0x04034b50
+    private static final int CENTRAL_HEADER_SIG = 0x02014b50
+    private static final int END_SIG = 0x06054b50
+    private static final int DATA_DESCRIPTOR_SIG = 0x08074b50
+    private static final int LOCAL_HEADER_SIZE = 30
+    private static final int CENTRAL_HEADER_SIZE = 46
+    private static final int END_SIZE = 22
+    /** 通用标志位第 3 位：crc 和大小写在数据之后的 data descriptor 中 */
+    private static final int FLAG_DATA_DESCRIPTOR = 0x08
+
+    /**
+     * 重写 jar 中的一个 entry
+     * @param src 来源 jar
+     * @param dest 输出 jar
+     * @param entryName 需要重写的 entry
+     * @param transform 传入原始内容，返回新内容
+     * @return 是否完成重写，jar 为 zip64 格式时返回 false
+     */
+    static boolean rewrite(File src, File dest, String entryName, Closure<byte[]> transform) {
+        FileChannel input = FileChannel.open(src.toPath(), StandardOpenOption.READ)
+        try {
+            ByteBuffer end = readEnd(input)
+            if (end == null) {
+                return false
+            }
+            int entryCount = end.getShort(10) & 0xFFFF
+            long centralSize = end.getInt(12) & 0xFFFFFFFFL
+            long centralOffset = end.getInt(16) & 0xFFFFFFFFL
+            if (entryCount == 0xFFFF || centralSize == 0xFFFFFFFFL || centralOffset == 0xFFFFFFFFL) {
+                return false
+            }
+            ByteBuffer central = read(input, centralOffset, (int) centralSize)
+
+            FileChannel output = FileChannel.open(dest.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)
+            try {
+                ByteArrayOutputStream newCentral = new ByteArrayOutputStream((int) centralSize + 64)
+                int position = 0
+                for (int i = 0; i < entryCount; i++) {
+                    if (central.getInt(position) != CENTRAL_HEADER_SIG) {
+                        throw new ZipException('invalid central directory in ' + src)
+                    }
+                    int nameLength = central.getShort(position + 28) & 0xFFFF
+                    int headerLength = CENTRAL_HEADER_SIZE + nameLength + (central.getShort(position + 30) & 0xFFFF) + (central.getShort(position + 32) & 0xFFFF)
+                    byte[] header = new byte[headerLength]
+                    central.position(position)
+                    central.get(header)
+                    ByteBuffer entry = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN)
+                    String name = new String(header, CENTRAL_HEADER_SIZE, nameLength, 'UTF-8')
+                    long compressedSize = entry.getInt(20) & 0xFFFFFFFFL
+                    long localOffset = entry.getInt(42) & 0xFFFFFFFFL
+                    if (compressedSize == 0xFFFFFFFFL || localOffset == 0xFFFFFFFFL) {
+                        return false
+                    }
+                    ByteBuffer local = read(input, localOffset, LOCAL_HEADER_SIZE)
+                    if (local.getInt(0) != LOCAL_HEADER_SIG) {
+                        throw new ZipException('invalid local header of ' + name + ' in ' + src)
+                    }
+                    int localLength = LOCAL_HEADER_SIZE + (local.getShort(26) & 0xFFFF) + (local.getShort(28) & 0xFFFF)
+                    long newOffset = output.position()
+                    if (name == entryName) {
+                        writeRewritten(input, output, entry, localOffset + localLength, compressedSize, transform)
+                    } else {
+                        long length = localLength + compressedSize
+                        if ((entry.getShort(8) & FLAG_DATA_DESCRIPTOR) != 0) {
+                            length += descriptorLength(input, localOffset + length)
+                        }
+                        transfer(input, localOffset, length, output)
+                    }
+                    entry.putInt(42, (int) newOffset)
+                    newCentral.write(header)
+                    position += headerLength
+                }
+                long newCentralOffset = output.position()
+                output.write(ByteBuffer.wrap(newCentral.toByteArray()))
+                end.putInt(12, newCentral.size())
+                end.putInt(16, (int) newCentralOffset)
+                end.position(0)
+                output.write(end)
+            } finally {
+                output.close()
+            }
+            return true
+        } finally {
+            input.close()
+        }
+    }
+
+    /**
+     * 写入重写后的 entry，保留原来的压缩方式和时间，同时更新中央目录中的 crc 和大小
+     */
+    private static void writeRewritten(FileChannel input, FileChannel output, ByteBuffer entry, long dataOffset,
+                                       long compressedSize, Closure<byte[]> transform) {
+        int method = entry.getShort(10) & 0xFFFF
+        int uncompressedSize = entry.getInt(24)
+        byte[] data = read(input, dataOffset, (int) compressedSize).array()
+        if (method == ZipEntry.DEFLATED) {
+            data = inflate(data, uncompressedSize)
+        } else if (method != ZipEntry.STORED) {
+            throw new ZipException('unsupported compression method: ' + method)
+        }
+        byte[] content = transform.call(data)
+        CRC32 crc = new CRC32()
+        crc.update(content)
+        byte[] stored = method == ZipEntry.DEFLATED ? deflate(content) : content
+
+        int nameLength = entry.getShort(28) & 0xFFFF
+        ByteBuffer local = ByteBuffer.allocate(LOCAL_HEADER_SIZE + nameLength).order(ByteOrder.LITTLE_ENDIAN)
+        local.putInt(LOCAL_HEADER_SIG)
+        local.putShort(entry.getShort(6))
+        local.putShort((short) (entry.getShort(8) & ~FLAG_DATA_DESCRIPTOR))
+        local.putShort(entry.getShort(10))
+        local.putInt(entry.getInt(12))
+        local.putInt((int) crc.getValue())
+        local.putInt(stored.length)
+        local.putInt(content.length)
+        local.putShort((short) nameLength)
+        local.putShort((short) 0)
+        local.put(entry.array(), CENTRAL_HEADER_SIZE, nameLength)
+        local.flip()
+        output.write(local)
+        output.write(ByteBuffer.wrap(stored))
+
+        entry.putShort(8, (short) (entry.getShort(8) & ~FLAG_DATA_DESCRIPTOR))
+        entry.putInt(16, (int) crc.getValue())
+        entry.putInt(20, stored.length)
+        entry.putInt(24, content.length)
+    }
+
+    /**
+     * 从文件末尾查找中央目录结束记录，允许末尾带有注释
+     */
+    private static ByteBuffer readEnd(FileChannel input) {
+        long size = input.size()
+        int length = (int) Math.min(size, END_SIZE + 0xFFFF)
+        ByteBuffer tail = read(input, size - length, length)
+        for (int i = length - END_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == END_SIG && i + END_SIZE + (tail.getShort(i + 20) & 0xFFFF) == length) {
+                byte[] end = new byte[length - i]
+                tail.position(i)
+                tail.get(end)
+                return ByteBuffer.wrap(end).order(ByteOrder.LITTLE_ENDIAN)
+            }
+        }
+        return null
+    }
+
+    private static int descriptorLength(FileChannel input, long offset) {
+        return read(input, offset, 4).getInt(0) == DATA_DESCRIPTOR_SIG ? 16 : 12
+    }
+
+    private static ByteBuffer read(FileChannel input, long offset, int length) {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN)
+        while (buffer.hasRemaining()) {
+            if (input.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException()
+            }
+        }
+        buffer.flip()
+        return buffer
+    }
+
+    private static void transfer(FileChannel input, long offset, long length, FileChannel output) {
+        long done = 0
+        while (done < length) {
+            done += input.transferTo(offset + done, length - done, output)
+        }
+    }
+
+    private static byte[] inflate(byte[] data, int size) {
+        Inflater inflater = new Inflater(true)
+        try {
+            inflater.setInput(data)
+            byte[] result = new byte[size]
+            int length = 0
+            while (length < size && !inflater.finished()) {
+                int n = inflater.inflate(result, length, size - length)
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new ZipException('truncated deflate data')
+                }
+                length += n
+            }
+            return result
+        } finally {
+            inflater.end()
+        }
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true)
+        try {
+            deflater.setInput(data)
+            deflater.finish()
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length)
+            byte[] buffer = new byte[8192]
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer)
+                out.write(buffer, 0, n)
+            }
+            return out.toByteArray()
+        } finally {
+            deflater.end()
+        }
+    }
+}
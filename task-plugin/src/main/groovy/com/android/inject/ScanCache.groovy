@@ -0,0 +1,423 @@
+package com.android.inject
+
+import org.apache.commons.codec.binary.Hex
+import org.apache.commons.codec.digest.DigestUtils
+
+import java.nio.channels.FileChannel
+import java.nio.channels.FileLock
+import java.nio.file.AtomicMoveNotSupportedException
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.nio.file.StandardOpenOption
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+
+/**
+ * ClassName: ScanCache
+ * Description: 扫描结果的二进制缓存，按文件内容的 md5 保存，路径变化（clean、换目录、CI 机器）后仍可命中。
+ * 文件记录路径到 (长度, 修改时间, md5) 的映射，长度和修改时间不变时不重新计算 md5；
+ * 打开时只解析索引，扫描结果在用到时才解码，未用到的条目保存时原样写回。
+ * 另外记录每个 class 目录上次完整写入扫描结果的构建标识，增量构建据此判断目录的缓存是否可用。
+ * 缓存文件由所有工程共享，保存时在文件锁内合并其他构建写入的条目
+ * Date: 2026/10/18 16:40
+ */
+class ScanCache {
+    private static final int MAGIC = 0x494E4A43
+    private static final int VERSION = 3
+    private static final int KEY_BYTES = 16
+    /** 超过该时间未被使用的条目在保存时丢弃 */
+    private static final long MAX_UNUSED_MILLIS = TimeUnit.DAYS.toMillis(30)
+    /** 同一进程内的保存互斥，FileChannel.lock 在同一 JVM 内重复加锁会抛出 OverlappingFileLockException */
+    private static final Object SAVE_LOCK = new Object()
+
+    private final File mFile
+    /** 路径 -> 文件标记 */
+    private final Map<String, Stamp> mStamps = new ConcurrentHashMap<>()
+    /** 本次构建移除的路径，合并时不从其他构建写入的内容中恢复 */
+    private final Set<String> mRemovedPaths = ConcurrentHashMap.newKeySet()
+    /** md5 -> 缓存文件中未解码的扫描结果 */
+    private final Map<String, Slot> mSlots = new HashMap<>()
+    /** md5 -> 本次构建用到或新增的扫描结果，保存时重新编码 */
+    private final Map<String, ScanJarEntity> mEntities = new ConcurrentHashMap<>()
+    /** class 目录 -> 上次完整写入该目录扫描结果的构建标识 */
+    private final Map<String, DirectoryMark> mDirectories = new ConcurrentHashMap<>()
+
+    private ScanCache(File file) {
+        mFile = file
+    }
+
+    /**
+     * 打开缓存文件，文件不存在或格式不符时返回空缓存
+     * @param file 缓存文件
+     * @return ScanCache
+     */
+    static ScanCache open(File file) {
+        ScanCache cache = new ScanCache(file)
+        if (file.exists()) {
+            try {
+                cache.readIndex()
+            } catch (IOException e) {
+                e.printStackTrace()
+                cache.mStamps.clear()
+                cache.mSlots.clear()
+                cache.mDirectories.clear()
+            }
+        }
+        return cache
+    }
+
+    /**
+     * 查找文件的扫描结果
+     * @param file jar 或 class 文件
+     * @return 扫描结果，未缓存时返回 null
+     */
+    ScanJarEntity get(File file) {
+        String key = keyOf(file)
+        ScanJarEntity entity = mEntities.get(key)
+        if (entity != null) {
+            return entity
+        }
+        Slot slot = mSlots.get(key)
+        if (slot == null) {
+            return null
+        }
+        entity = decode(new DataInputStream(new ByteArrayInputStream(slot.data, slot.offset, slot.length)))
+        ScanJarEntity previous = mEntities.putIfAbsent(key, entity)
+        return previous != null ? previous : entity
+    }
+
+    /**
+     * 保存文件本次的扫描结果
+     * @param path jar 或 class 文件路径
+     * @param entity 扫描结果
+     */
+    void put(String path, ScanJarEntity entity) {
+        String key = keyOf(new File(path))
+        mEntities.put(key, entity)
+    }
+
+    /**
+     * 移除路径的记录，文件内容对应的扫描结果保留
+     * @param path jar 或 class 文件路径
+     */
+    void remove(String path) {
+        mStamps.remove(path)
+        mRemovedPaths.add(path)
+    }
+
+    /**
+     * @param root class 目录，以分隔符结尾
+     * @return 上次完整写入该目录扫描结果的构建标识，没有记录时返回 null
+     */
+    String getDirectoryToken(String root) {
+        return mDirectories.get(root)?.token
+    }
+
+    /**
+     * 记录本次构建已完整写入目录的扫描结果
+     * @param root class 目录，以分隔符结尾
+     * @param token 本次构建的标识，同时记录在工程的构建目录中
+     */
+    void putDirectoryToken(String root, String token) {
+        mDirectories.put(root, new DirectoryMark(token, System.currentTimeMillis()))
+    }
+
+    /**
+     * 以 prefix 开头的已记录路径
+     */
+    List<String> paths(String prefix) {
+        List<String> paths = []
+        mStamps.keySet().each { path ->
+            if (path.startsWith(prefix)) paths.add(path)
+        }
+        return paths
+    }
+
+    /**
+     * 写回缓存文件。在文件锁内重新读取文件并合并其他构建写入的条目，
+     * 再写入同目录下的临时文件并原子替换，并发保存不会丢失条目，中途失败也不会留下损坏的缓存
+     */
+    void save() {
+        mFile.getParentFile().mkdirs()
+        File lockFile = new File(mFile.parentFile, mFile.name + '.lock')
+        synchronized (SAVE_LOCK) {
+            FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)
+            try {
+                FileLock lock = channel.lock()
+                try {
+                    mergeLatest()
+                    write()
+                } finally {
+                    lock.release()
+                }
+            } finally {
+                channel.close()
+            }
+        }
+    }
+
+    /**
+     * 合并打开后其他构建写入缓存文件的条目，同一条目保留最近的使用时间
+     */
+    private void mergeLatest() {
+        if (!mFile.exists()) {
+            return
+        }
+        ScanCache latest = new ScanCache(mFile)
+        try {
+            latest.readIndex()
+        } catch (IOException e) {
+            // 文件损坏时只写入本次的内容
+            e.printStackTrace()
+            return
+        }
+        latest.mStamps.each { String path, Stamp stamp ->
+            if (!mRemovedPaths.contains(path)) mStamps.putIfAbsent(path, stamp)
+        }
+        latest.mSlots.each { String key, Slot slot ->
+            Slot current = mSlots.get(key)
+            if (current == null || current.lastUsed < slot.lastUsed) mSlots.put(key, slot)
+        }
+        latest.mDirectories.each { String root, DirectoryMark mark ->
+            DirectoryMark current = mDirectories.get(root)
+            if (current == null || current.lastUsed < mark.lastUsed) mDirectories.put(root, mark)
+        }
+    }
+
+    private void write() {
+        long now = System.currentTimeMillis()
+        Map<String, Long> lastUsed = new HashMap<>()
+        mSlots.each { String key, Slot slot ->
+            if (now - slot.lastUsed <= MAX_UNUSED_MILLIS) lastUsed.put(key, slot.lastUsed)
+        }
+        mEntities.keySet().each { key -> lastUsed.put(key, now) }
+
+        // 临时文件名唯一，与缓存文件在同一目录，保证可以原子替换
+        File temp = File.createTempFile(mFile.name, '.tmp', mFile.parentFile)
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))
+            try {
+                out.writeInt(MAGIC)
+                out.writeInt(VERSION)
+                List<Map.Entry<String, Stamp>> stamps = []
+                mStamps.entrySet().each { entry ->
+                    if (lastUsed.containsKey(entry.value.key)) stamps.add(entry)
+                }
+                out.writeInt(stamps.size())
+                stamps.each { entry ->
+                    out.writeUTF(entry.key)
+                    out.writeLong(entry.value.length)
+                    out.writeLong(entry.value.lastModified)
+                    out.write(Hex.decodeHex(entry.value.key.toCharArray()))
+                }
+                out.writeInt(lastUsed.size())
+                ByteArrayOutputStream blob = new ByteArrayOutputStream()
+                lastUsed.each { String key, Long time ->
+                    out.write(Hex.decodeHex(key.toCharArray()))
+                    out.writeLong(time)
+                    ScanJarEntity entity = mEntities.get(key)
+                    if (entity != null) {
+                        blob.reset()
+                        encode(entity, new DataOutputStream(blob))
+                        out.writeInt(blob.size())
+                        blob.writeTo(out)
+                    } else {
+                        // 未用到的条目直接复制原始字节，不解码
+                        Slot slot = mSlots.get(key)
+                        out.writeInt(slot.length)
+                        out.write(slot.data, slot.offset, slot.length)
+                    }
+                }
+                List<Map.Entry<String, DirectoryMark>> directories = []
+                mDirectories.entrySet().each { entry ->
+                    if (now - entry.value.lastUsed <= MAX_UNUSED_MILLIS) directories.add(entry)
+                }
+                out.writeInt(directories.size())
+                directories.each { entry ->
+                    out.writeUTF(entry.key)
+                    out.writeUTF(entry.value.token)
+                    out.writeLong(entry.value.lastUsed)
+                }
+            } finally {
+                out.close()
+            }
+            try {
+                Files.move(temp.toPath(), mFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+            } catch (AtomicMoveNotSupportedException ignored) {
+                Files.move(temp.toPath(), mFile.toPath(), StandardCopyOption.REPLACE_EXISTING)
+            }
+        } finally {
+            temp.delete()
+        }
+    }
+
+    /**
+     * 文件内容的 md5，文件长度和修改时间与记录一致时直接使用记录的值
+     */
+    private String keyOf(File file) {
+        String path = file.absolutePath
+        long length = file.length()
+        long lastModified = file.lastModified()
+        Stamp stamp = mStamps.get(path)
+        if (stamp != null && stamp.length == length && stamp.lastModified == lastModified) {
+            return stamp.key
+        }
+        String key
+        InputStream inputStream = new BufferedInputStream(new FileInputStream(file))
+        try {
+            key = DigestUtils.md5Hex(inputStream)
+        } finally {
+            inputStream.close()
+        }
+        mStamps.put(path, new Stamp(length, lastModified, key))
+        return key
+    }
+
+    private void readIndex() {
+        byte[] data = Files.readAllBytes(mFile.toPath())
+        ByteArrayInputStream bytes = new ByteArrayInputStream(data)
+        DataInputStream input = new DataInputStream(bytes)
+        if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+            return
+        }
+        byte[] keyBytes = new byte[KEY_BYTES]
+        int stampCount = input.readInt()
+        for (int i = 0; i < stampCount; i++) {
+            String path = input.readUTF()
+            long length = input.readLong()
+            long lastModified = input.readLong()
+            input.readFully(keyBytes)
+            mStamps.put(path, new Stamp(length, lastModified, Hex.encodeHexString(keyBytes)))
+        }
+        int entryCount = input.readInt()
+        for (int i = 0; i < entryCount; i++) {
+            input.readFully(keyBytes)
+            long lastUsed = input.readLong()
+            int length = input.readInt()
+            int offset = data.length - bytes.available()
+            if (length < 0 || input.skipBytes(length) != length) {
+                throw new EOFException('truncated scan cache: ' + mFile)
+            }
+            mSlots.put(Hex.encodeHexString(keyBytes), new Slot(data, offset, length, lastUsed))
+        }
+        int directoryCount = input.readInt()
+        for (int i = 0; i < directoryCount; i++) {
+            String root = input.readUTF()
+            String token = input.readUTF()
+            mDirectories.put(root, new DirectoryMark(token, input.readLong()))
+        }
+    }
+
+    private static void encode(ScanJarEntity entity, DataOutputStream out) {
+        out.writeInt(entity.harvestList.size())
+        entity.harvestList.each { harvest ->
+            out.writeUTF(harvest.className)
+            writeNullableString(out, harvest.interfaceName)
+            out.writeBoolean(harvest.isInitClass)
+            List<TaskNode> nodes = harvest.taskNodes
+            out.writeInt(nodes == null ? -1 : nodes.size())
+            nodes?.each { node ->
+                writeNullableString(out, node.name)
+                out.writeBoolean(node.background)
+                out.writeBoolean(node.idle)
+                out.writeInt(node.dispatcher)
+                out.writeInt(node.priority)
+                out.writeInt(node.cost)
+                out.writeBoolean(node.lazy)
+                writeStrings(out, node.process)
+                writeStrings(out, node.depends)
+            }
+        }
+    }
+
+    private static ScanJarEntity decode(DataInputStream input) {
+        ScanJarEntity entity = new ScanJarEntity()
+        int harvestCount = input.readInt()
+        for (int i = 0; i < harvestCount; i++) {
+            ScanJarEntity.Harvest harvest = new ScanJarEntity.Harvest()
+            harvest.setClassName(input.readUTF())
+            harvest.setInterfaceName(readNullableString(input))
+            harvest.setIsInitClass(input.readBoolean())
+            int nodeCount = input.readInt()
+            if (nodeCount >= 0) {
+                List<TaskNode> nodes = new ArrayList<>(nodeCount)
+                for (int j = 0; j < nodeCount; j++) {
+                    TaskNode node = new TaskNode()
+                    node.name = readNullableString(input)
+                    node.background = input.readBoolean()
+                    node.idle = input.readBoolean()
+                    node.dispatcher = input.readInt()
+                    node.priority = input.readInt()
+                    node.cost = input.readInt()
+                    node.lazy = input.readBoolean()
+                    node.process = readStrings(input)
+                    node.depends = readStrings(input)
+                    nodes.add(node)
+                }
+                harvest.setTaskNodes(nodes)
+            }
+            entity.harvestList.add(harvest)
+        }
+        return entity
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) {
+        out.writeBoolean(value != null)
+        if (value != null) out.writeUTF(value)
+    }
+
+    private static String readNullableString(DataInputStream input) {
+        return input.readBoolean() ? input.readUTF() : null
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) {
+        out.writeInt(values.size())
+        values.each { out.writeUTF(it) }
+    }
+
+    private static List<String> readStrings(DataInputStream input) {
+        int size = input.readInt()
+        List<String> values = new ArrayList<>(size)
+        for (int i = 0; i < size; i++) {
+            values.add(input.readUTF())
+        }
+        return values
+    }
+
+    private static class Stamp {
+        final long length
+        final long lastModified
+        final String key
+
+        Stamp(long length, long lastModified, String key) {
+            this.length = length
+            this.lastModified = lastModified
+            this.key = key
+        }
+    }
+
+    private static class DirectoryMark {
+        final String token
+        final long lastUsed
+
+        DirectoryMark(String token, long lastUsed) {
+            this.token = token
+            this.lastUsed = lastUsed
+        }
+    }
+
+    private static class Slot {
+        /** 读取时的缓存文件内容，扫描结果从这里按偏移读取 */
+        final byte[] data
+        final int offset
+        final int length
+        final long lastUsed
+
+        Slot(byte[] data, int offset, int length, long lastUsed) {
+            this.data = data
+            this.offset = offset
+            this.lastUsed = lastUsed
+            this.length = length
+        }
+    }
+}
@@ -8,9 +8,10 @@ package com.android.inject
  */
 class ScanJarEntity {
     List<Harvest> harvestList = new ArrayList<>()
-    class Harvest {
+    static class Harvest {
         String className
         String interfaceName
         boolean isInitClass
+        List<TaskNode> taskNodes
     }
 }
\ No newline at end of file
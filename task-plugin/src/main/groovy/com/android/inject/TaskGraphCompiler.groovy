@@ -0,0 +1,202 @@
+package com.android.inject
+
+import groovy.json.JsonOutput
+import org.gradle.api.GradleException
+
+/**
+ * ClassName: TaskGraphCompiler
+ * Description: 编译期合并所有模块的任务并构建任务图，存在循环依赖或未知依赖时构建失败
+ * Date: 2026/10/18 14:20
+ */
+class TaskGraphCompiler {
+    /** 每个数以一个 char 编码 */
+    static final int MAX_VALUE = Character.MAX_VALUE
+    /** 进程分组之间的分隔符，与运行时 TaskProcessUtil 一致 */
+    static final String PROCESS_GROUP_SEPARATOR = ';'
+    /** 同一分组内进程之间的分隔符 */
+    static final String PROCESS_SEPARATOR = ','
+
+    /**
+     * 编译结果，任务 id 即任务在运行时任务集合中的位置
+     */
+    static class Schedule {
+        List<TaskNode> tasks
+        int[] inDegree
+        int[] dependentsOffset
+        int[] dependents
+        /** 按 process 声明去重后的进程分组 */
+        List<List<String>> processGroups
+        /** 每个任务所属的进程分组 */
+        int[] taskProcessGroup
+    }
+
+    /**
+     * 按 classList 的注册顺序合并任务并构建任务图
+     * @param info 注入配置，classList 与 taskNodeMap 已扫描完成
+     * @return 任务图，有注册类缺少任务元数据时返回 null，由运行时构建
+     */
+    static Schedule compile(InjectPluginInfo info) {
+        List<TaskNode> tasks = []
+        for (String className : info.classList) {
+            def nodes = info.taskNodeMap.get(className)
+            if (nodes == null) {
+                println("inject-plugin: ${className} has no task metadata, task graph will be built at runtime")
+                return null
+            }
+            tasks.addAll(nodes)
+        }
+        int size = tasks.size()
+        if (size > MAX_VALUE) {
+            throw new GradleException("inject-plugin: too many startup tasks: ${size}")
+        }
+        Map<String, Integer> nameIndex = new HashMap<>()
+        for (int i = 0; i < size; i++) {
+            def previous = nameIndex.put(tasks.get(i).name, i)
+            if (previous != null) {
+                throw new GradleException("inject-plugin: duplicate startup task name '${tasks.get(i).name}'")
+            }
+        }
+        // 每个任务的父任务 id，重复的依赖只算一次
+        List<Set<Integer>> parents = new ArrayList<>(size)
+        List<String> unknown = []
+        for (int i = 0; i < size; i++) {
+            Set<Integer> set = new LinkedHashSet<>()
+            tasks.get(i).depends.each { dependName ->
+                Integer parent = nameIndex.get(dependName)
+                if (parent == null) {
+                    unknown.add("'${tasks.get(i).name}' depends on unknown task '${dependName}'")
+                } else {
+                    set.add(parent)
+                }
+            }
+            parents.add(set)
+        }
+        if (!unknown.isEmpty()) {
+            throw new GradleException("inject-plugin: unknown startup task dependency:\n  " + unknown.join('\n  '))
+        }
+
+        int[] inDegree = new int[size]
+        int[] dependentsOffset = new int[size + 1]
+        for (int i = 0; i < size; i++) {
+            inDegree[i] = parents.get(i).size()
+            parents.get(i).each { parent -> dependentsOffset[parent + 1]++ }
+        }
+        for (int i = 0; i < size; i++) {
+            dependentsOffset[i + 1] += dependentsOffset[i]
+        }
+        if (dependentsOffset[size] > MAX_VALUE) {
+            throw new GradleException("inject-plugin: too many startup task dependencies: ${dependentsOffset[size]}")
+        }
+        List<List<Integer>> children = new ArrayList<>(size)
+        for (int i = 0; i < size; i++) {
+            children.add(new ArrayList<Integer>())
+        }
+        for (int i = 0; i < size; i++) {
+            parents.get(i).each { parent -> children.get(parent).add(i) }
+        }
+        // 子任务按优先级预先排好序，同时就绪时优先级高的先入队
+        int[] dependents = new int[dependentsOffset[size]]
+        for (int i = 0; i < size; i++) {
+            def sorted = children.get(i).sort(false) { a, b ->
+                tasks.get(a).priority <=> tasks.get(b).priority ?: a <=> b
+            }
+            for (int j = 0; j < sorted.size(); j++) {
+                dependents[dependentsOffset[i] + j] = sorted.get(j)
+            }
+        }
+        checkCycle(tasks, inDegree, dependentsOffset, dependents)
+        def schedule = new Schedule(tasks: tasks, inDegree: inDegree, dependentsOffset: dependentsOffset,
+                dependents: dependents, processGroups: [], taskProcessGroup: new int[size])
+        groupByProcess(schedule)
+        return schedule
+    }
+
+    /**
+     * 按 process 声明对任务分组，声明相同（忽略顺序和重复）的任务属于同一组，运行时每组只匹配一次当前进程
+     */
+    private static void groupByProcess(Schedule schedule) {
+        Map<List<String>, Integer> groupIndex = new HashMap<>()
+        for (int i = 0; i < schedule.tasks.size(); i++) {
+            TaskNode node = schedule.tasks.get(i)
+            List<String> key = node.process.toSorted().unique()
+            key.each { process ->
+                if (process.isEmpty() || process.contains(PROCESS_GROUP_SEPARATOR) || process.contains(PROCESS_SEPARATOR)) {
+                    throw new GradleException("inject-plugin: invalid process '${process}' of startup task '${node.name}'")
+                }
+            }
+            Integer group = groupIndex.get(key)
+            if (group == null) {
+                group = schedule.processGroups.size()
+                groupIndex.put(key, group)
+                schedule.processGroups.add(key)
+            }
+            schedule.taskProcessGroup[i] = group
+        }
+    }
+
+    /**
+     * 将进程分组编码为字符串，运行时 TaskProcessUtil.parseProcessGroups 解码
+     */
+    static String encodeProcessGroups(List<List<String>> groups) {
+        return groups.collect { it.join(PROCESS_SEPARATOR) }.join(PROCESS_GROUP_SEPARATOR)
+    }
+
+    /**
+     * 拓扑排序检查循环依赖
+     */
+    private static void checkCycle(List<TaskNode> tasks, int[] inDegree, int[] dependentsOffset, int[] dependents) {
+        int size = tasks.size()
+        int[] degree = inDegree.clone()
+        Deque<Integer> stack = new ArrayDeque<>()
+        for (int i = 0; i < size; i++) {
+            if (degree[i] == 0) stack.push(i)
+        }
+        int visited = 0
+        while (!stack.isEmpty()) {
+            int id = stack.pop()
+            visited++
+            for (int i = dependentsOffset[id]; i < dependentsOffset[id + 1]; i++) {
+                if (--degree[dependents[i]] == 0) stack.push(dependents[i])
+            }
+        }
+        if (visited != size) {
+            def cycle = []
+            for (int i = 0; i < size; i++) {
+                if (degree[i] > 0) cycle.add(tasks.get(i).name)
+            }
+            throw new GradleException("inject-plugin: circular startup task dependency among: " + cycle.join(', '))
+        }
+    }
+
+    /**
+     * 将任务图写为 JSON，任务按 id 排列，供启动模拟器 task-simulator 读取
+     * @param schedule 任务图
+     * @param file 输出文件
+     */
+    static void writeJson(Schedule schedule, File file) {
+        def tasks = schedule.tasks.collect { node ->
+            [name      : node.name,
+             background: node.background,
+             idle      : node.idle,
+             dispatcher: node.dispatcher,
+             priority  : node.priority,
+             cost      : node.cost,
+             lazy      : node.lazy,
+             process   : node.process,
+             depends   : node.depends]
+        }
+        file.getParentFile().mkdirs()
+        file.setText(JsonOutput.prettyPrint(JsonOutput.toJson([tasks: tasks])), 'UTF-8')
+    }
+
+    /**
+     * 将整型数组编码为字符串，运行时 TaskGraph.decode 解码
+     */
+    static String encode(int[] values) {
+        char[] chars = new char[values.length]
+        for (int i = 0; i < values.length; i++) {
+            chars[i] = (char) values[i]
+        }
+        return new String(chars)
+    }
+}
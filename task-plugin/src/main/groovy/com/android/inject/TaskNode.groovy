@@ -0,0 +1,23 @@
+package com.android.inject
+
+/**
+ * ClassName: TaskNode
+ * Description: 从注册类 @TaskRegisterInfo 中读取的任务元数据
+ * Date: 2026/10/18 14:20
+ */
+class TaskNode {
+    String name
+    boolean background = true
+    boolean idle
+    int dispatcher
+    int priority
+    int cost = 1
+    boolean lazy
+    List<String> process = []
+    List<String> depends = []
+
+    @Override
+    String toString() {
+        return name
+    }
+}
@@ -0,0 +1,246 @@
+package com.android.inject
+
+import com.android.build.api.transform.Context
+import com.android.build.api.transform.DirectoryInput
+import com.android.build.api.transform.Format
+import com.android.build.api.transform.JarInput
+import com.android.build.api.transform.Status
+import com.android.build.api.transform.TransformInput
+import com.android.build.api.transform.TransformOutputProvider
+import org.gradle.api.Project
+import org.gradle.api.invocation.Gradle
+import org.gradle.api.logging.Logging
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.ClassVisitor
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.MethodVisitor
+import org.objectweb.asm.Opcodes
+
+import java.util.jar.JarEntry
+import java.util.jar.JarOutputStream
+
+import static org.junit.Assert.assertArrayEquals
+import static org.junit.Assert.assertEquals
+import static org.junit.Assert.assertFalse
+import static org.junit.Assert.assertTrue
+
+/**
+ * ClassName: InjectPluginTransformTest
+ * Description: InjectPluginTransform 的全量和增量构建：移除的 jar、目录的增量扫描
+ * Date: 2026/10/18 21:20
+ */
+class InjectPluginTransformTest {
+    private static final String INTERFACE = 'com/android/task_annotation/ITaskRegister'
+    private static final String INIT_CLASS = 'com/android/task_impl/TaskRegisterManager'
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder()
+
+    private File mClassesDir
+    private File mOutDir
+    private File mGradleHome
+    private InjectPluginTransform mTransform
+    private InjectPluginInfo mInfo
+    private Map<File, Status> mChangedFiles = [:]
+
+    @Before
+    void setUp() {
+        File base = temp.root
+        mClassesDir = new File(base, 'classes')
+        mOutDir = new File(base, 'out')
+        mGradleHome = new File(base, 'gradleHome')
+        writeClass(new File(mClassesDir, INIT_CLASS + '.class'), initClass())
+        writeClass(new File(mClassesDir, 'com/android/task_register/TaskRegister$app.class'), registerClass('com/android/task_register/TaskRegister$app'))
+
+        def logger = Logging.getLogger(InjectPluginTransformTest)
+        File buildDir = new File(base, 'build')
+        Project project = [getLogger     : { logger },
+                           getBuildDir   : { buildDir },
+                           getGradle     : { [getGradleUserHomeDir: { mGradleHome }] as Gradle }] as Project
+        mInfo = new InjectPluginInfo()
+        mInfo.interfaceName = INTERFACE.replace('/', '.')
+        mInfo.initClassName = INIT_CLASS.replace('/', '.')
+        mInfo.initMethodName = 'init'
+        mInfo.registerMethodName = 'register'
+        mInfo.include = ['com/android/task_register/.*']
+        mInfo.init()
+        InjectPluginConfig config = new InjectPluginConfig()
+        config.project = project
+        config.list = [mInfo]
+        config.cacheEnabled = true
+        mTransform = new InjectPluginTransform(project)
+        mTransform.config = config
+    }
+
+    @Test
+    void removedJarDeletesOutputWithoutScanning() {
+        File kept = registerJar('kept', 'com/android/task_register/TaskRegister$kept')
+        File removed = registerJar('removed', 'com/android/task_register/TaskRegister$removed')
+        transform(false, [jar(kept, Status.ADDED), jar(removed, Status.ADDED)])
+        File removedDest = new File(mOutDir, destName(removed))
+        assertTrue(removedDest.exists())
+        assertEquals(3, registerCalls())
+
+        assertTrue(removed.delete())
+        transform(true, [jar(kept, Status.NOTCHANGED), jar(removed, Status.REMOVED)])
+
+        assertFalse(removedDest.exists())
+        assertTrue(new File(mOutDir, destName(kept)).exists())
+        assertEquals(['com/android/task_register/TaskRegister$app', 'com/android/task_register/TaskRegister$kept'], mInfo.classList)
+        assertEquals(2, registerCalls())
+    }
+
+    @Test
+    void incrementalDirectoryKeepsUnchangedRegistrations() {
+        transform(false, [])
+        assertEquals(['com/android/task_register/TaskRegister$app'], mInfo.classList)
+
+        File added = new File(mClassesDir, 'com/android/task_register/TaskRegister$added.class')
+        writeClass(added, registerClass('com/android/task_register/TaskRegister$added'))
+        mChangedFiles = [(added): Status.ADDED]
+        transform(true, [])
+
+        assertEquals(['com/android/task_register/TaskRegister$added', 'com/android/task_register/TaskRegister$app'], mInfo.classList)
+        assertEquals(2, registerCalls())
+    }
+
+    @Test
+    void incrementalDirectoryFallsBackToFullScanWithoutCache() {
+        transform(false, [])
+        // 扫描缓存在 Gradle 用户目录，可能被删除或在另一台机器上不存在
+        assertTrue(mGradleHome.deleteDir())
+
+        File added = new File(mClassesDir, 'com/android/task_register/TaskRegister$added.class')
+        writeClass(added, registerClass('com/android/task_register/TaskRegister$added'))
+        mChangedFiles = [(added): Status.ADDED]
+        transform(true, [])
+
+        assertEquals(['com/android/task_register/TaskRegister$added', 'com/android/task_register/TaskRegister$app'], mInfo.classList)
+        assertEquals(2, registerCalls())
+    }
+
+    @Test
+    void changedJarHittingOlderCacheEntryIsCopied() {
+        File flipped = temp.newFile('flipped.jar')
+        writeJar(flipped, 'com/android/task_register/TaskRegister$a')
+        byte[] contentA = flipped.bytes
+        transform(false, [jar(flipped, Status.ADDED)])
+        File dest = new File(mOutDir, destName(flipped))
+
+        writeJar(flipped, 'com/android/task_register/TaskRegister$b')
+        byte[] contentB = flipped.bytes
+        transform(true, [jar(flipped, Status.CHANGED)])
+        assertArrayEquals(contentB, dest.bytes)
+
+        // 内容变回 A，按内容命中上一次构建的缓存
+        flipped.bytes = contentA
+        transform(true, [jar(flipped, Status.CHANGED)])
+
+        assertArrayEquals(contentA, dest.bytes)
+        assertEquals(['com/android/task_register/TaskRegister$a', 'com/android/task_register/TaskRegister$app'], mInfo.classList)
+        assertEquals(2, registerCalls())
+    }
+
+    private void transform(boolean incremental, List<JarInput> jars) {
+        DirectoryInput directory = [getName        : { 'classes' },
+                                    getFile        : { mClassesDir },
+                                    getContentTypes: { [] as Set },
+                                    getScopes      : { [] as Set },
+                                    getChangedFiles: { mChangedFiles }] as DirectoryInput
+        TransformInput input = [getJarInputs: { jars }, getDirectoryInputs: { [directory] }] as TransformInput
+        TransformOutputProvider provider = [deleteAll         : { mOutDir.deleteDir() },
+                                            getContentLocation: { String name, Set types, Set scopes, Format format ->
+                                                new File(mOutDir, format == Format.JAR ? name + '.jar' : name)
+                                            }] as TransformOutputProvider
+        mTransform.transform([getVariantName: { 'debug' }] as Context, [input], [], provider, incremental)
+    }
+
+    private static JarInput jar(File file, Status status) {
+        return [getName        : { file.name },
+                getFile        : { file },
+                getContentTypes: { [] as Set },
+                getScopes      : { [] as Set },
+                getStatus      : { status }] as JarInput
+    }
+
+    private static String destName(File file) {
+        return InjectPluginTransform.getDestFile(jar(file, Status.NOTCHANGED), [getContentLocation: { String name, Set types, Set scopes, Format format ->
+            new File(name + '.jar')
+        }] as TransformOutputProvider).name
+    }
+
+    /**
+     * 注入后 init 方法中调用 register 的次数
+     */
+    private int registerCalls() {
+        int calls = 0
+        new ClassReader(new File(mOutDir, 'classes/' + INIT_CLASS + '.class').bytes).accept(new ClassVisitor(Opcodes.ASM5) {
+            @Override
+            MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                if (name != 'init') {
+                    return null
+                }
+                return new MethodVisitor(Opcodes.ASM5) {
+                    @Override
+                    void visitMethodInsn(int opcode, String owner, String method, String desc, boolean itf) {
+                        if (method == 'register') calls++
+                    }
+                }
+            }
+        }, 0)
+        return calls
+    }
+
+    private File registerJar(String name, String className) {
+        File file = temp.newFile(name + '.jar')
+        writeJar(file, className)
+        return file
+    }
+
+    private static void writeJar(File file, String className) {
+        JarOutputStream out = new JarOutputStream(new FileOutputStream(file))
+        try {
+            out.putNextEntry(new JarEntry(className + '.class'))
+            out.write(registerClass(className))
+            out.closeEntry()
+        } finally {
+            out.close()
+        }
+    }
+
+    private static void writeClass(File file, byte[] bytes) {
+        file.parentFile.mkdirs()
+        file.bytes = bytes
+    }
+
+    private static byte[] registerClass(String name) {
+        ClassWriter cw = new ClassWriter(0)
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, 'java/lang/Object', [INTERFACE] as String[])
+        cw.visitEnd()
+        return cw.toByteArray()
+    }
+
+    /**
+     * 带有空的 init() 和 register(ITaskRegister) 的注入类
+     */
+    private static byte[] initClass() {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS)
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, INIT_CLASS, null, 'java/lang/Object', null)
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PRIVATE, 'init', '()V', null, null)
+        mv.visitCode()
+        mv.visitInsn(Opcodes.RETURN)
+        mv.visitMaxs(0, 0)
+        mv.visitEnd()
+        mv = cw.visitMethod(Opcodes.ACC_PUBLIC, 'register', "(L${INTERFACE};)V", null, null)
+        mv.visitCode()
+        mv.visitInsn(Opcodes.RETURN)
+        mv.visitMaxs(0, 0)
+        mv.visitEnd()
+        cw.visitEnd()
+        return cw.toByteArray()
+    }
+}
@@ -0,0 +1,208 @@
+package com.android.inject
+
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+import java.util.zip.CRC32
+import java.util.zip.Deflater
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+import java.util.zip.ZipInputStream
+import java.util.zip.ZipOutputStream
+
+import static org.junit.Assert.assertArrayEquals
+import static org.junit.Assert.assertEquals
+import static org.junit.Assert.assertFalse
+import static org.junit.Assert.assertTrue
+
+/**
+ * ClassName: JarEntryRewriterTest
+ * Description: JarEntryRewriter 重写 deflated、stored 以及带 data descriptor 的 jar，
+ * 输出用 ZipFile 和 ZipInputStream 重新读取校验内容和 crc
+ * Date: 2026/10/18 23:40
+ */
+class JarEntryRewriterTest {
+    private static final String TARGET = 'com/android/task_impl/TaskRegisterManager.class'
+    private static final Map<String, String> ENTRIES = [
+            'META-INF/MANIFEST.MF'                         : 'Manifest-Version: 1.0\n',
+            (TARGET)                                       : 'original init class',
+            'com/android/task_register/TaskRegister$a.class': 'register class a' * 20,
+            'com/android/task_register/TaskRegister$b.class': 'register class b' * 20,
+    ]
+    /** 不记录 crc 和大小，由 ZipOutputStream 写在数据之后的 data descriptor 中 */
+    private static final int DESCRIPTOR = -1
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder()
+
+    @Test
+    void rewritesDeflatedJar() {
+        File src = writeJar('deflated.jar', ZipEntry.DEFLATED, null)
+        assertFalse(hasDataDescriptor(src, TARGET))
+        File dest = rewrite(src, 'out.jar')
+        assertJar(dest, ZipEntry.DEFLATED)
+    }
+
+    @Test
+    void rewritesStoredJar() {
+        File src = writeJar('stored.jar', ZipEntry.STORED, null)
+        assertFalse(hasDataDescriptor(src, TARGET))
+        File dest = rewrite(src, 'out.jar')
+        assertJar(dest, ZipEntry.STORED)
+    }
+
+    @Test
+    void rewritesJarWithDataDescriptors() {
+        File src = writeJar('descriptor.jar', DESCRIPTOR, null)
+        assertTrue('source entries should use data descriptors', hasDataDescriptor(src, TARGET))
+        File dest = rewrite(src, 'out.jar')
+        assertJar(dest, ZipEntry.DEFLATED)
+    }
+
+    @Test
+    void keepsEndRecordComment() {
+        File src = writeJar('comment.jar', DESCRIPTOR, 'built by test')
+        File dest = rewrite(src, 'out.jar')
+        assertJar(dest, ZipEntry.DEFLATED)
+        ZipFile zip = new ZipFile(dest)
+        try {
+            assertEquals('built by test', zip.comment)
+        } finally {
+            zip.close()
+        }
+    }
+
+    @Test
+    void outputIsByteIdenticalAcrossRuns() {
+        [ZipEntry.DEFLATED, ZipEntry.STORED, DESCRIPTOR].each { int method ->
+            File src = writeJar("src$method" + '.jar', method, null)
+            File first = rewrite(src, "first$method" + '.jar')
+            File second = rewrite(src, "second$method" + '.jar')
+            assertArrayEquals(first.bytes, second.bytes)
+        }
+    }
+
+    private File rewrite(File src, String name) {
+        File dest = new File(temp.root, name)
+        assertTrue(JarEntryRewriter.rewrite(src, dest, TARGET, { byte[] bytes ->
+            (new String(bytes, 'UTF-8') + ' injected').getBytes('UTF-8')
+        }))
+        return dest
+    }
+
+    /**
+     * 用 ZipFile（中央目录）和 ZipInputStream（本地头）分别读取，校验内容、crc 和顺序
+     */
+    private static void assertJar(File jar, int method) {
+        Map<String, String> expected = new LinkedHashMap<>(ENTRIES)
+        expected.put(TARGET, ENTRIES.get(TARGET) + ' injected')
+
+        ZipFile zip = new ZipFile(jar)
+        try {
+            assertEquals(expected.keySet().toList(), zip.entries().toList()*.name)
+            expected.each { String name, String content ->
+                ZipEntry entry = zip.getEntry(name)
+                byte[] bytes = zip.getInputStream(entry).bytes
+                assertEquals(content, new String(bytes, 'UTF-8'))
+                assertEquals(method, entry.method)
+                assertEquals(bytes.length, entry.size)
+                assertEquals(crc(bytes), entry.crc)
+            }
+        } finally {
+            zip.close()
+        }
+
+        // ZipInputStream 按本地头和 data descriptor 读取，读取时校验 crc 和大小
+        ZipInputStream input = new ZipInputStream(new FileInputStream(jar))
+        try {
+            List<String> names = []
+            ZipEntry entry
+            while ((entry = input.nextEntry) != null) {
+                names.add(entry.name)
+                assertEquals(expected.get(entry.name), new String(readEntry(input), 'UTF-8'))
+            }
+            assertEquals(expected.keySet().toList(), names)
+        } finally {
+            input.close()
+        }
+    }
+
+    private File writeJar(String name, int method, String comment) {
+        File jar = new File(temp.root, name)
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))
+        try {
+            if (comment != null) out.setComment(comment)
+            ENTRIES.each { String entryName, String content ->
+                byte[] bytes = content.getBytes('UTF-8')
+                ZipEntry entry = new ZipEntry(entryName)
+                entry.setTime(1_600_000_000_000L)
+                if (method == DESCRIPTOR) {
+                    entry.setMethod(ZipEntry.DEFLATED)
+                } else {
+                    // 预先设置 crc 和大小，本地头中直接记录，不写 data descriptor
+                    entry.setMethod(method)
+                    entry.setSize(bytes.length)
+                    entry.setCrc(crc(bytes))
+                    entry.setCompressedSize(method == ZipEntry.STORED ? bytes.length : deflatedSize(bytes))
+                }
+                out.putNextEntry(entry)
+                out.write(bytes)
+                out.closeEntry()
+            }
+        } finally {
+            out.close()
+        }
+        return jar
+    }
+
+    /**
+     * 本地头中 crc 和大小写在 data descriptor 里时，ZipInputStream 读到 entry 时还不知道大小
+     */
+    private static boolean hasDataDescriptor(File jar, String entryName) {
+        ZipInputStream input = new ZipInputStream(new FileInputStream(jar))
+        try {
+            ZipEntry entry
+            while ((entry = input.nextEntry) != null) {
+                if (entry.name == entryName) {
+                    return entry.compressedSize == -1
+                }
+            }
+            return false
+        } finally {
+            input.close()
+        }
+    }
+
+    private static byte[] readEntry(ZipInputStream input) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream()
+        byte[] buffer = new byte[1024]
+        int n
+        while ((n = input.read(buffer)) != -1) {
+            out.write(buffer, 0, n)
+        }
+        return out.toByteArray()
+    }
+
+    private static long crc(byte[] bytes) {
+        CRC32 crc = new CRC32()
+        crc.update(bytes)
+        return crc.value
+    }
+
+    private static int deflatedSize(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true)
+        try {
+            deflater.setInput(bytes)
+            deflater.finish()
+            byte[] buffer = new byte[bytes.length + 64]
+            int size = 0
+            while (!deflater.finished()) {
+                size += deflater.deflate(buffer)
+            }
+            return size
+        } finally {
+            deflater.end()
+        }
+    }
+}
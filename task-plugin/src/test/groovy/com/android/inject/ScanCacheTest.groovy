@@ -0,0 +1,91 @@
+package com.android.inject
+
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+
+import static org.junit.Assert.assertEquals
+import static org.junit.Assert.assertNotNull
+import static org.junit.Assert.assertNull
+
+/**
+ * ClassName: ScanCacheTest
+ * Description: ScanCache 的保存：多个构建同时打开、保存共享的缓存文件
+ * Date: 2026/10/18 23:10
+ */
+class ScanCacheTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder()
+
+    @Test
+    void concurrentSavesKeepEachOthersEntries() {
+        File cacheFile = new File(temp.root, 'cache/scan.bin')
+        int builds = 8
+        List<File> inputs = []
+        for (int i = 0; i < builds; i++) {
+            File input = temp.newFile("input$i")
+            input.text = "content $i"
+            inputs.add(input)
+        }
+        // 所有构建先打开同一份缓存，再各自写入不同的条目后同时保存
+        List<ScanCache> caches = []
+        for (int i = 0; i < builds; i++) {
+            ScanCache cache = ScanCache.open(cacheFile)
+            cache.put(inputs[i].absolutePath, entity("Task$i"))
+            cache.putDirectoryToken("/root$i/", "token$i")
+            caches.add(cache)
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(builds)
+        try {
+            List<Future<?>> futures = caches.collect { ScanCache cache ->
+                executor.submit({ cache.save() } as Callable)
+            }
+            futures.each { it.get() }
+        } finally {
+            executor.shutdownNow()
+        }
+
+        ScanCache reopened = ScanCache.open(cacheFile)
+        for (int i = 0; i < builds; i++) {
+            ScanJarEntity entity = reopened.get(inputs[i])
+            assertNotNull("entry of build $i lost", entity)
+            assertEquals("Task$i".toString(), entity.harvestList[0].className)
+            assertEquals("token$i".toString(), reopened.getDirectoryToken("/root$i/"))
+        }
+        // 临时文件替换后不残留
+        assertEquals(['scan.bin', 'scan.bin.lock'], cacheFile.parentFile.list().toList().sort())
+    }
+
+    @Test
+    void removedPathIsNotRestoredByMerge() {
+        File cacheFile = new File(temp.root, 'scan.bin')
+        File input = temp.newFile('input')
+        input.text = 'content'
+        ScanCache first = ScanCache.open(cacheFile)
+        first.put(input.absolutePath, entity('Task'))
+        first.save()
+
+        ScanCache second = ScanCache.open(cacheFile)
+        second.remove(input.absolutePath)
+        second.save()
+
+        assertEquals([], ScanCache.open(cacheFile).paths(input.absolutePath))
+        // 扫描结果按内容保存，路径移除后内容相同的文件仍可命中
+        assertNotNull(ScanCache.open(cacheFile).get(input))
+        assertNull(ScanCache.open(cacheFile).getDirectoryToken('/root/'))
+    }
+
+    private static ScanJarEntity entity(String className) {
+        ScanJarEntity entity = new ScanJarEntity()
+        ScanJarEntity.Harvest harvest = new ScanJarEntity.Harvest()
+        harvest.setClassName(className)
+        entity.harvestList.add(harvest)
+        return entity
+    }
+}
@@ -0,0 +1,191 @@
+package com.android.inject
+
+import org.gradle.api.GradleException
+import org.junit.Test
+
+import static org.junit.Assert.assertArrayEquals
+import static org.junit.Assert.assertEquals
+import static org.junit.Assert.assertNull
+import static org.junit.Assert.assertTrue
+import static org.junit.Assert.fail
+
+/**
+ * ClassName: TaskGraphCompilerTest
+ * Description: TaskGraphCompiler 的任务图构建、构建失败的各种情况，以及编码结果与运行时解码格式一致
+ * Date: 2026/10/18 21:10
+ */
+class TaskGraphCompilerTest {
+
+    @Test
+    void compileMergesModulesInClassListOrder() {
+        def info = info([
+                'm/TaskRegister$b': [node('B', ['A']), node('C', ['A'], -1)],
+                'm/TaskRegister$a': [node('A'), node('D', ['B', 'C', 'B'])],
+        ])
+        def schedule = TaskGraphCompiler.compile(info)
+
+        assertEquals(['A', 'D', 'B', 'C'], schedule.tasks*.name)
+        // 重复的依赖只算一次
+        assertArrayEquals([0, 2, 1, 1] as int[], schedule.inDegree)
+        assertArrayEquals([0, 2, 2, 3, 4] as int[], schedule.dependentsOffset)
+        // A 的子任务按优先级排序，C 的优先级更高
+        assertArrayEquals([3, 2, 1, 1] as int[], schedule.dependents)
+    }
+
+    @Test
+    void encodedScheduleDecodesWithRuntimeFormat() {
+        def info = info(['m/TaskRegister$a': [node('A'), node('B', ['A']), node('C', ['A', 'B'])]])
+        def schedule = TaskGraphCompiler.compile(info)
+
+        assertArrayEquals(schedule.inDegree, decode(TaskGraphCompiler.encode(schedule.inDegree)))
+        assertArrayEquals(schedule.dependentsOffset, decode(TaskGraphCompiler.encode(schedule.dependentsOffset)))
+        assertArrayEquals(schedule.dependents, decode(TaskGraphCompiler.encode(schedule.dependents)))
+        // 边界值也必须原样还原，包括 0、代理对范围内的值和 65535
+        int[] values = [0, 1, 0xD800, 0xDBFF, 0xDC00, 0xFFFE, TaskGraphCompiler.MAX_VALUE] as int[]
+        String encoded = TaskGraphCompiler.encode(values)
+        assertEquals(values.length, encoded.length())
+        assertArrayEquals(values, decode(encoded))
+        // 经过 class 文件常量池使用的 modified UTF-8 往返后不变
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream()
+        new DataOutputStream(bytes).writeUTF(encoded)
+        String restored = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())).readUTF()
+        assertArrayEquals(values, decode(restored))
+    }
+
+    @Test
+    void processGroupsEncodeWithRuntimeFormat() {
+        def info = info(['m/TaskRegister$a': [
+                node('A', [], 0, ['main']),
+                node('B', [], 0, [':push', 'main', 'main']),
+                node('C', [], 0, ['main', ':push']),
+                node('D', [], 0, []),
+        ]])
+        def schedule = TaskGraphCompiler.compile(info)
+
+        assertEquals([['main'], [':push', 'main'], []], schedule.processGroups)
+        assertArrayEquals([0, 1, 1, 2] as int[], schedule.taskProcessGroup)
+        String encoded = TaskGraphCompiler.encodeProcessGroups(schedule.processGroups)
+        assertEquals('main;:push,main;', encoded)
+        assertEquals(schedule.processGroups, parseProcessGroups(encoded))
+    }
+
+    @Test
+    void missingMetadataReturnsNull() {
+        def info = info(['m/TaskRegister$a': [node('A')]])
+        info.classList.add('m/TaskRegister$legacy')
+
+        assertNull(TaskGraphCompiler.compile(info))
+    }
+
+    @Test
+    void duplicateNameFails() {
+        def info = info([
+                'm/TaskRegister$a': [node('A')],
+                'm/TaskRegister$b': [node('A')],
+        ])
+        assertFails(info, "duplicate startup task name 'A'")
+    }
+
+    @Test
+    void unknownDependencyFails() {
+        def info = info(['m/TaskRegister$a': [node('A', ['Missing']), node('B', ['A', 'Other'])]])
+        def message = assertFails(info, 'unknown startup task dependency')
+        assertTrue(message.contains("'A' depends on unknown task 'Missing'"))
+        assertTrue(message.contains("'B' depends on unknown task 'Other'"))
+    }
+
+    @Test
+    void cycleFails() {
+        def info = info(['m/TaskRegister$a': [node('A'), node('B', ['A', 'D']), node('C', ['B']), node('D', ['C'])]])
+        def message = assertFails(info, 'circular startup task dependency')
+        assertTrue(message.endsWith('B, C, D'))
+    }
+
+    @Test
+    void invalidProcessFails() {
+        def info = info(['m/TaskRegister$a': [node('A', [], 0, ['main;other'])]])
+        assertFails(info, "invalid process 'main;other'")
+    }
+
+    @Test
+    void taskCountLimit() {
+        List<TaskNode> nodes = (0..<TaskGraphCompiler.MAX_VALUE).collect { node("T${it}") }
+        assertEquals(TaskGraphCompiler.MAX_VALUE, TaskGraphCompiler.compile(info(['m/TaskRegister$a': nodes])).tasks.size())
+
+        nodes.add(node('Overflow'))
+        assertFails(info(['m/TaskRegister$a': nodes]), 'too many startup tasks: 65536')
+    }
+
+    @Test
+    void dependencyCountLimit() {
+        // 256 * 256 = 65536 条依赖，超过一个 char 能表示的偏移
+        List<TaskNode> nodes = (0..<256).collect { node("P${it}") }
+        List<String> parents = nodes*.name
+        (0..<256).each { nodes.add(node("C${it}", parents)) }
+        assertFails(info(['m/TaskRegister$a': nodes]), 'too many startup task dependencies: 65536')
+    }
+
+    @Test
+    void writeJsonListsTasksInIdOrder() {
+        def info = info(['m/TaskRegister$a': [node('A'), node('B', ['A'], 5, [':push'])]])
+        info.taskNodeMap.get('m/TaskRegister$a').get(1).dispatcher = 2
+        def schedule = TaskGraphCompiler.compile(info)
+        File file = File.createTempFile('task-graph', '.json')
+        try {
+            TaskGraphCompiler.writeJson(schedule, file)
+            def json = new groovy.json.JsonSlurper().parse(file, 'UTF-8')
+            assertEquals(['A', 'B'], json.tasks*.name)
+            assertEquals(['A'], json.tasks[1].depends)
+            assertEquals([':push'], json.tasks[1].process)
+            assertEquals(5, json.tasks[1].priority)
+            assertEquals(2, json.tasks[1].dispatcher)
+        } finally {
+            file.delete()
+        }
+    }
+
+    private static String assertFails(InjectPluginInfo info, String expected) {
+        try {
+            TaskGraphCompiler.compile(info)
+        } catch (GradleException e) {
+            assertTrue(e.message, e.message.contains(expected))
+            return e.message
+        }
+        fail('expected GradleException: ' + expected)
+        return null
+    }
+
+    /**
+     * 注册类按类名排序后合并，与扫描完成后的 sortClassList 一致
+     */
+    private static InjectPluginInfo info(Map<String, List<TaskNode>> registers) {
+        InjectPluginInfo info = new InjectPluginInfo()
+        registers.each { className, nodes -> info.addRegisterClass(className, nodes) }
+        info.sortClassList()
+        return info
+    }
+
+    private static TaskNode node(String name, List<String> depends = [], int priority = 0, List<String> process = ['main']) {
+        return new TaskNode(name: name, depends: depends, priority: priority, process: process)
+    }
+
+    /**
+     * 与运行时 TaskGraph.decode 相同，每个 char 表示一个数
+     */
+    private static int[] decode(String encoded) {
+        int[] values = new int[encoded.length()]
+        for (int i = 0; i < values.length; i++) {
+            values[i] = encoded.charAt(i)
+        }
+        return values
+    }
+
+    /**
+     * 与运行时 TaskProcessUtil.parseProcessGroups 相同
+     */
+    private static List<List<String>> parseProcessGroups(String encoded) {
+        return encoded.split(TaskGraphCompiler.PROCESS_GROUP_SEPARATOR, -1).collect { group ->
+            group.isEmpty() ? [] : group.split(TaskGraphCompiler.PROCESS_SEPARATOR).toList()
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package com.android.task_processor;
 
+import com.android.task_annotation.ITask;
+import com.android.task_annotation.ITaskFactory;
 import com.android.task_annotation.ITaskRegister;
 import com.android.task_annotation.TaskAnnotation;
 import com.android.task_annotation.TaskEntity;
+import com.android.task_annotation.TaskRegisterInfo;
 import com.google.auto.service.AutoService;
+import com.squareup.javapoet.AnnotationSpec;
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.JavaFile;
@@ -14,8 +18,9 @@ import com.squareup.javapoet.TypeSpec;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 
 import javax.annotation.processing.AbstractProcessor;
 import javax.annotation.processing.Filer;
@@ -29,9 +34,11 @@ import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
 
 /**
- * Name: TaskAnnotationProcessor Description: 任务注解解析 Author: wudi41 Date: 2022/08/31
+ * Name: TaskAnnotationProcessor Description: 任务注解解析，Gradle 增量编译中为 aggregating 处理器，
+ * 见 META-INF/gradle/incremental.annotation.processors Author: wudi41 Date: 2022/08/31
  */
 @AutoService(Processor.class)
 public class TaskAnnotationProcessor extends AbstractProcessor {
@@ -46,6 +53,8 @@ public class TaskAnnotationProcessor extends AbstractProcessor {
     private Filer filer;
     // 模块名称
     private String moduleName;
+    // 已生成的注册类数量，每一轮有新的任务类时生成一个
+    private int registerCount;
 
     @Override
     public synchronized void init(ProcessingEnvironment processingEnv) {
@@ -66,6 +75,16 @@ public class TaskAnnotationProcessor extends AbstractProcessor {
         return Collections.singleton(TaskAnnotation.class.getCanonicalName());
     }
 
+    @Override
+    public Set<String> getSupportedOptions() {
+        return Collections.singleton("moduleName");
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
     /**
      * 解析注解后，并去生成 .java 文件
      *
@@ -76,42 +95,118 @@ public class TaskAnnotationProcessor extends AbstractProcessor {
      */
     @Override
     public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
-        Set<? extends Element> elements = roundEnv.getElementsAnnotatedWith(TaskAnnotation.class);
-        if (elements == null || elements.size() == 0) {
+        Set<? extends Element> annotated = roundEnv.getElementsAnnotatedWith(TaskAnnotation.class);
+        if (annotated == null || annotated.size() == 0) {
+            // 最后一轮没有新的源文件，不会走到这里生成文件
             return false;
         }
+        // 按类名排序，增量编译时 Gradle 传入的元素顺序不固定，生成的注册顺序需保持稳定
+        Set<String> taskClassNames = new TreeSet<>();
+        for (Element element : annotated) {
+            taskClassNames.add(((TypeElement) element).getQualifiedName().toString());
+        }
+        List<TypeElement> elements = new ArrayList<>();
+        for (String className : taskClassNames) {
+            elements.add(elementUtils.getTypeElement(className));
+        }
+        generateRegister(elements);
+        return true;
+    }
 
-        elementUtils.getTypeElement("com.android.task_interf.IRunTask");
+    /**
+     * 生成本轮任务的注册类。第一轮为 TaskRegister$moduleName，其他处理器在后续轮次生成的任务类
+     * 依次注册到 TaskRegister$moduleName$2、$3…，插件扫描时与其他模块的注册类一起合并
+     *
+     * @param elements 本轮带有任务注解的类，按类名排序
+     */
+    private void generateRegister(List<TypeElement> elements) {
+        registerCount++;
+        String registerName = "TaskRegister$" + moduleName + (registerCount == 1 ? "" : "$" + registerCount);
 
         MethodSpec.Builder builder = MethodSpec.methodBuilder("register")
                 .addAnnotation(Override.class)
                 .addModifiers(Modifier.PUBLIC)
                 .addParameter(ParameterizedTypeName.get(ClassName.get(ArrayList.class), ClassName.get(TaskEntity.class))
                         , "tasks");
-        for (Element element : elements) {
+        // 任务工厂，任务类只在 create 中引用，不执行的任务不会被加载
+        MethodSpec.Builder factoryBuilder = MethodSpec.methodBuilder("create")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .returns(ITask.class)
+                .addParameter(int.class, "index")
+                .beginControlFlow("switch (index)");
+        // 任务元数据，顺序与 register 中添加任务的顺序一致
+        AnnotationSpec.Builder infoBuilder = AnnotationSpec.builder(TaskRegisterInfo.class);
+        TypeSpec.Builder registerBuilder = TypeSpec.classBuilder(registerName);
+        int index = 0;
+        for (TypeElement element : elements) {
             TaskAnnotation taskAnnotation = element.getAnnotation(TaskAnnotation.class);
-            System.out.println("taskAnnotation.name() = " + taskAnnotation.name());
+            messager.printMessage(Diagnostic.Kind.NOTE, "taskAnnotation.name() = " + taskAnnotation.name());
+            // 生成的注册类依赖所有任务类，任务类变化时 Gradle 据此重新生成
+            registerBuilder.addOriginatingElement(element);
             CodeBlock codeBlock = CodeBlock.builder()
-                    .addStatement("tasks.add(new TaskEntity($S, $L, $L, $L, $L ,new $T()));",
-                            taskAnnotation.name(), taskAnnotation.background(),
-                            taskAnnotation.priority(), strarr2String(taskAnnotation.process()),
-                            strarr2String(taskAnnotation.depends()), ClassName.get(element.asType()))
+                    .addStatement("tasks.add(new TaskEntity($S, $L, $L, $L, $L, $L, $L, $L, $L, $L, $L, this, $L))",
+                            taskAnnotation.name(), taskAnnotation.background(), taskAnnotation.idle(), taskAnnotation.dispatcher(),
+                            taskAnnotation.priority(), taskAnnotation.cost(), taskAnnotation.lazy(), strarr2String(taskAnnotation.process()),
+                            strarr2String(taskAnnotation.depends()), taskAnnotation.timeout(), taskAnnotation.timeoutPolicy(), index)
                     .build();
             builder.addCode(codeBlock);
+            factoryBuilder.addCode("case $L:\n$>return new $T();\n$<", index, ClassName.get(element.asType()));
+            infoBuilder.addMember("value", "$L", taskAnnotation2Spec(taskAnnotation));
+            index++;
         }
         MethodSpec registerMethod = builder.build();
-        TypeSpec registerClass = TypeSpec.classBuilder("TaskRegister$" + moduleName)
+        MethodSpec factoryMethod = factoryBuilder
+                .addCode("default:\n$>throw new $T($S + index);\n$<", IllegalArgumentException.class, "unknown task index: ")
+                .endControlFlow()
+                .build();
+        TypeSpec registerClass = registerBuilder
+                .addAnnotation(infoBuilder.build())
                 .addSuperinterface(ITaskRegister.class)
+                .addSuperinterface(ITaskFactory.class)
                 .addModifiers(Modifier.PUBLIC)
                 .addMethod(registerMethod)
+                .addMethod(factoryMethod)
                 .build();
         JavaFile javaFile = JavaFile.builder("com.android.task_register", registerClass).build();
         try {
             javaFile.writeTo(filer);
         } catch (IOException e) {
-            e.printStackTrace();
+            messager.printMessage(Diagnostic.Kind.ERROR, "failed to write " + registerClass.name + ": " + e);
         }
-        return true;
+    }
+
+    /**
+     * 将任务注解转换为写入注册类的注解，所有属性都显式写出，插件读取时无需关心默认值
+     *
+     * @param taskAnnotation 任务注解
+     *
+     * @return AnnotationSpec
+     */
+    private AnnotationSpec taskAnnotation2Spec(TaskAnnotation taskAnnotation) {
+        return AnnotationSpec.builder(TaskAnnotation.class)
+                .addMember("name", "$S", taskAnnotation.name())
+                .addMember("background", "$L", taskAnnotation.background())
+                .addMember("idle", "$L", taskAnnotation.idle())
+                .addMember("dispatcher", "$L", taskAnnotation.dispatcher())
+                .addMember("priority", "$L", taskAnnotation.priority())
+                .addMember("cost", "$L", taskAnnotation.cost())
+                .addMember("lazy", "$L", taskAnnotation.lazy())
+                .addMember("process", "$L", strarr2Initializer(taskAnnotation.process()))
+                .addMember("depends", "$L", strarr2Initializer(taskAnnotation.depends()))
+                .addMember("timeout", "$L", taskAnnotation.timeout())
+                .addMember("timeoutPolicy", "$L", taskAnnotation.timeoutPolicy())
+                .build();
+    }
+
+    private CodeBlock strarr2Initializer(String[] stringArray) {
+        CodeBlock.Builder builder = CodeBlock.builder().add("{");
+        if (stringArray != null) {
+            for (int i = 0; i < stringArray.length; i++) {
+                builder.add(i == 0 ? "$S" : ", $S", stringArray[i]);
+            }
+        }
+        return builder.add("}").build();
     }
 
     private String strarr2String(String[] stringArray) {
@@ -0,0 +1,13 @@
+package android.app;
+
+import android.content.Context;
+
+/**
+ * ClassName: Application Description: JVM 基准测试替身，当前进程即主进程 Date: 2026/10/18 19:40
+ */
+public class Application extends Context {
+
+    public static String getProcessName() {
+        return PACKAGE_NAME;
+    }
+}
@@ -0,0 +1,22 @@
+package android.content;
+
+import java.io.File;
+
+/**
+ * ClassName: Context Description: JVM 基准测试替身 Date: 2026/10/18 19:40
+ */
+public class Context {
+    protected static final String PACKAGE_NAME = "com.android.task_benchmark";
+
+    public Context getApplicationContext() {
+        return this;
+    }
+
+    public String getPackageName() {
+        return PACKAGE_NAME;
+    }
+
+    public File getFilesDir() {
+        return new File(System.getProperty("java.io.tmpdir"));
+    }
+}
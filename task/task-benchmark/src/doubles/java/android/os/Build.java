@@ -0,0 +1,15 @@
+package android.os;
+
+/**
+ * ClassName: Build Description: JVM 基准测试替身 Date: 2026/10/18 19:40
+ */
+public class Build {
+
+    public static class VERSION {
+        public static final int SDK_INT = VERSION_CODES.P;
+    }
+
+    public static class VERSION_CODES {
+        public static final int P = 28;
+    }
+}
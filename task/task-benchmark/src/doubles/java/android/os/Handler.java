@@ -0,0 +1,22 @@
+package android.os;
+
+/**
+ * ClassName: Handler Description: JVM 基准测试替身，投递的消息只进入 Looper 的队列，
+ * 基准测试只调度后台任务，不会执行主线程消息 Date: 2026/10/18 19:40
+ */
+public class Handler {
+    private final Looper mLooper;
+
+    public Handler(Looper looper) {
+        this.mLooper = looper;
+    }
+
+    public final boolean post(Runnable r) {
+        mLooper.mQueue.offer(r);
+        return true;
+    }
+
+    public final Looper getLooper() {
+        return mLooper;
+    }
+}
@@ -0,0 +1,29 @@
+package android.os;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * ClassName: Looper Description: JVM 基准测试替身，只记录投递的消息，没有消息循环 Date: 2026/10/18 19:40
+ */
+public final class Looper {
+    private static final Looper MAIN = new Looper();
+    private static final ThreadLocal<Looper> LOOPERS = new ThreadLocal<>();
+
+    final ConcurrentLinkedQueue<Runnable> mQueue = new ConcurrentLinkedQueue<>();
+    private final MessageQueue mMessageQueue = new MessageQueue();
+
+    private Looper() {
+    }
+
+    public static Looper getMainLooper() {
+        return MAIN;
+    }
+
+    public static Looper myLooper() {
+        return LOOPERS.get();
+    }
+
+    public static MessageQueue myQueue() {
+        return LOOPERS.get().mMessageQueue;
+    }
+}
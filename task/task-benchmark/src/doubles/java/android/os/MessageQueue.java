@@ -0,0 +1,17 @@
+package android.os;
+
+/**
+ * ClassName: MessageQueue Description: JVM 基准测试替身，空闲回调不会执行 Date: 2026/10/18 19:40
+ */
+public final class MessageQueue {
+
+    public interface IdleHandler {
+        boolean queueIdle();
+    }
+
+    public void addIdleHandler(IdleHandler handler) {
+    }
+
+    public void removeIdleHandler(IdleHandler handler) {
+    }
+}
@@ -0,0 +1,18 @@
+package android.os;
+
+/**
+ * ClassName: Process Description: JVM 基准测试替身，不修改线程优先级 Date: 2026/10/18 19:40
+ */
+public class Process {
+    public static final int THREAD_PRIORITY_DEFAULT = 0;
+    public static final int THREAD_PRIORITY_LESS_FAVORABLE = 1;
+    public static final int THREAD_PRIORITY_MORE_FAVORABLE = -1;
+    public static final int THREAD_PRIORITY_BACKGROUND = 10;
+
+    public static void setThreadPriority(int priority) {
+    }
+
+    public static int myPid() {
+        return 0;
+    }
+}
@@ -0,0 +1,15 @@
+package android.os;
+
+/**
+ * ClassName: Trace Description: JVM 基准测试替身，不输出 trace Date: 2026/10/18 19:40
+ */
+public final class Trace {
+    private Trace() {
+    }
+
+    public static void beginSection(String sectionName) {
+    }
+
+    public static void endSection() {
+    }
+}
@@ -0,0 +1,11 @@
+package android.text;
+
+/**
+ * ClassName: TextUtils Description: JVM 基准测试替身 Date: 2026/10/18 19:40
+ */
+public class TextUtils {
+
+    public static boolean isEmpty(CharSequence str) {
+        return str == null || str.length() == 0;
+    }
+}
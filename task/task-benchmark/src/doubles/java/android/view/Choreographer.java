@@ -0,0 +1,19 @@
+package android.view;
+
+/**
+ * ClassName: Choreographer Description: JVM 基准测试替身，帧回调不会执行 Date: 2026/10/18 19:40
+ */
+public final class Choreographer {
+    private static final Choreographer INSTANCE = new Choreographer();
+
+    public interface FrameCallback {
+        void doFrame(long frameTimeNanos);
+    }
+
+    public static Choreographer getInstance() {
+        return INSTANCE;
+    }
+
+    public void postFrameCallback(FrameCallback callback) {
+    }
+}
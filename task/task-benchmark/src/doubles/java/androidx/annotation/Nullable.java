@@ -0,0 +1,7 @@
+package androidx.annotation;
+
+/**
+ * ClassName: Nullable Description: JVM 基准测试替身 Date: 2026/10/18 19:40
+ */
+public @interface Nullable {
+}
@@ -0,0 +1,127 @@
+package com.android.task_benchmark;
+
+import android.app.Application;
+
+import com.android.task_annotation.TaskEntity;
+import com.android.task_impl.TaskExecutors;
+import com.android.task_impl.TaskRegisterManager;
+import com.android.task_interf.RunTaskListener;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ClassName: SchedulerBenchmark Description: 测量 TaskRegisterManager 调度一次启动的开销：构建任务图、计算关键路径、
+ * 分发并完成全部空任务。主结果为每次启动的耗时，辅助结果 tasks 为每个任务的耗时；
+ * 每次启动的内存分配见 -prof gc 的 gc.alloc.rate.norm Date: 2026/10/18 19:40
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SchedulerBenchmark {
+    /** 调用线程依次执行，只包含调度开销 */
+    private static final String EXECUTOR_INLINE = "inline";
+    /** 默认后台线程池，包含线程间切换 */
+    private static final String EXECUTOR_POOL = "pool";
+
+    @Param({TaskGraphs.CHAIN, TaskGraphs.FAN_OUT, TaskGraphs.RANDOM})
+    public String shape;
+
+    @Param({"10", "100", "1000", "10000"})
+    public int size;
+
+    @Param({EXECUTOR_INLINE, EXECUTOR_POOL})
+    public String executor;
+
+    private TaskEntity[] mTasks;
+    private Executor mExecutor;
+    private Constructor<TaskRegisterManager> mConstructor;
+    private Application mApplication;
+
+    /**
+     * 每个任务的耗时，以调度的任务数作为辅助结果的操作数
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class TaskCounter {
+        public long tasks;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            tasks = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        mTasks = TaskGraphs.create(shape, size);
+        mExecutor = EXECUTOR_POOL.equals(executor) ? TaskExecutors.newDefaultExecutor() : new TrampolineExecutor();
+        // TaskRegisterManager 是单例，每次启动创建新的实例
+        mConstructor = TaskRegisterManager.class.getDeclaredConstructor();
+        mConstructor.setAccessible(true);
+        mApplication = new Application();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (mExecutor instanceof ExecutorService) {
+            ((ExecutorService) mExecutor).shutdown();
+        }
+    }
+
+    @Benchmark
+    public TaskRegisterManager schedule(TaskCounter counter) throws Exception {
+        TaskGraphs.reset(mTasks);
+        TaskRegisterManager manager = mConstructor.newInstance();
+        ArrayList<TaskEntity> taskList = manager.getTaskList();
+        Collections.addAll(taskList, mTasks);
+        CompleteListener listener = new CompleteListener();
+        manager.start(mApplication, listener, mExecutor);
+        listener.await();
+        counter.tasks += size;
+        return manager;
+    }
+
+    /**
+     * 等待启动阶段的任务全部完成
+     */
+    private static class CompleteListener implements RunTaskListener {
+        private final CountDownLatch mLatch = new CountDownLatch(1);
+
+        @Override
+        public void onSingleComplete(TaskEntity task) {
+        }
+
+        @Override
+        public void onAllComplete() {
+            mLatch.countDown();
+        }
+
+        void await() throws InterruptedException {
+            mLatch.await();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.android.task_benchmark;
+
+import android.content.Context;
+
+import com.android.task_annotation.ITaskConstant;
+import com.android.task_annotation.TaskEntity;
+import com.android.task_interf.IRunTask;
+
+import java.util.Random;
+
+/**
+ * ClassName: TaskGraphs Description: 生成基准测试使用的任务图，任务均为空任务 Date: 2026/10/18 19:40
+ */
+final class TaskGraphs {
+    /** 单链：每个任务依赖前一个任务 */
+    static final String CHAIN = "chain";
+    /** 扇出：一个根任务，其余任务都只依赖根任务，最后一个任务依赖所有中间任务 */
+    static final String FAN_OUT = "fanout";
+    /** 随机有向无环图：每个任务随机依赖 0 ~ MAX_RANDOM_DEPENDS 个在它之前的任务 */
+    static final String RANDOM = "random";
+
+    private static final int MAX_RANDOM_DEPENDS = 3;
+    /** 随机图的种子固定，每次运行得到相同的图 */
+    private static final long RANDOM_SEED = 20261018L;
+    private static final String[] PROCESS = {ITaskConstant.PROCESS_MAIN};
+    private static final String[] NO_DEPENDS = {};
+
+    private static final IRunTask NO_OP = new IRunTask() {
+        @Override
+        public void execute(Context context) {
+        }
+    };
+
+    private TaskGraphs() {
+    }
+
+    /**
+     * 创建任务图
+     *
+     * @param shape 见 CHAIN、FAN_OUT、RANDOM
+     * @param size  任务数
+     *
+     * @return 按注册顺序排列的任务
+     */
+    static TaskEntity[] create(String shape, int size) {
+        TaskEntity[] tasks = new TaskEntity[size];
+        Random random = new Random(RANDOM_SEED);
+        for (int i = 0; i < size; i++) {
+            tasks[i] = new TaskEntity.Builder(name(i)).process(PROCESS).depends(depends(shape, i, size, random))
+                    .task(NO_OP).build();
+        }
+        return tasks;
+    }
+
+    /**
+     * 重置任务的运行状态，同一组任务可以重复调度
+     *
+     * @param tasks 任务
+     */
+    static void reset(TaskEntity[] tasks) {
+        for (TaskEntity task : tasks) {
+            task.executed = false;
+            task.id = -1;
+            task.criticalPath = 0;
+        }
+    }
+
+    private static String[] depends(String shape, int index, int size, Random random) {
+        if (index == 0) {
+            return NO_DEPENDS;
+        }
+        if (CHAIN.equals(shape)) {
+            return new String[]{name(index - 1)};
+        }
+        if (FAN_OUT.equals(shape)) {
+            if (index < size - 1 || size < 3) {
+                return new String[]{name(0)};
+            }
+            String[] depends = new String[size - 2];
+            for (int i = 1; i < size - 1; i++) {
+                depends[i - 1] = name(i);
+            }
+            return depends;
+        }
+        if (RANDOM.equals(shape)) {
+            int count = Math.min(index, random.nextInt(MAX_RANDOM_DEPENDS + 1));
+            int[] parents = new int[count];
+            String[] depends = new String[count];
+            for (int i = 0; i < count; i++) {
+                // 不重复依赖同一个任务
+                int parent;
+                do {
+                    parent = random.nextInt(index);
+                } while (contains(parents, i, parent));
+                parents[i] = parent;
+                depends[i] = name(parent);
+            }
+            return depends;
+        }
+        throw new IllegalArgumentException("unknown shape: " + shape);
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String name(int index) {
+        return "task-" + index;
+    }
+}
@@ -0,0 +1,32 @@
+package com.android.task_benchmark;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+import androidx.annotation.NonNull;
+
+/**
+ * ClassName: TrampolineExecutor Description: 在调用线程执行任务的执行器，任务中再次提交的任务排队到当前任务之后执行，
+ * 栈深度不随任务链增长。基准测试用它排除线程切换，只测量调度本身的开销，只能在单个线程使用 Date: 2026/10/18 19:40
+ */
+final class TrampolineExecutor implements Executor {
+    private final ArrayDeque<Runnable> mQueue = new ArrayDeque<>();
+    private boolean mRunning;
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        mQueue.add(command);
+        if (mRunning) {
+            return;
+        }
+        mRunning = true;
+        try {
+            Runnable next;
+            while ((next = mQueue.poll()) != null) {
+                next.run();
+            }
+        } finally {
+            mRunning = false;
+        }
+    }
+}
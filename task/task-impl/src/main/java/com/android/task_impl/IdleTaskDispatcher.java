@@ -0,0 +1,98 @@
+package com.android.task_impl;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.view.Choreographer;
+
+import com.android.task_annotation.TaskEntity;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ClassName: IdleTaskDispatcher Description: 空闲阶段的主线程任务调度：等待下一帧绘制之后，在主线程空闲时
+ * 按帧预算分片执行，一帧内执行超出预算则等到下一帧继续 Date: 2026/10/18 17:20
+ */
+final class IdleTaskDispatcher implements MessageQueue.IdleHandler, Choreographer.FrameCallback {
+    /** 默认每帧执行空闲任务的时间预算（毫秒），约为 60Hz 下一帧的一半 */
+    static final long DEFAULT_FRAME_BUDGET_MS = 8;
+
+    /**
+     * 空闲任务的执行者，在主线程调用
+     */
+    interface TaskRunner {
+        void runIdleTask(TaskEntity entity);
+    }
+
+    /** 就绪的空闲任务，任意线程入队，主线程出队 */
+    private final PriorityBlockingQueue<TaskEntity> mQueue = new PriorityBlockingQueue<>();
+    /** 是否已安排下一次执行，避免重复注册帧回调 */
+    private final AtomicBoolean mScheduled = new AtomicBoolean();
+    private final Handler mHandler;
+    private final TaskRunner mRunner;
+    private final long mBudgetNanos;
+    private final Runnable mScheduleRunnable = new Runnable() {
+        @Override
+        public void run() {
+            Choreographer.getInstance().postFrameCallback(IdleTaskDispatcher.this);
+        }
+    };
+
+    IdleTaskDispatcher(Handler handler, TaskRunner runner, long budgetMillis) {
+        this.mHandler = handler;
+        this.mRunner = runner;
+        this.mBudgetNanos = budgetMillis * 1000000L;
+    }
+
+    /**
+     * 空闲任务就绪，可在任意线程调用
+     *
+     * @param entity 任务
+     */
+    void offer(TaskEntity entity) {
+        mQueue.offer(entity);
+        schedule();
+    }
+
+    /**
+     * 安排在下一帧之后执行，Choreographer 需在主线程获取
+     */
+    private void schedule() {
+        if (mScheduled.compareAndSet(false, true)) {
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                mScheduleRunnable.run();
+            } else {
+                mHandler.post(mScheduleRunnable);
+            }
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        // 本帧的绘制消息处理完之后主线程才会空闲
+        Looper.myQueue().addIdleHandler(this);
+    }
+
+    @Override
+    public boolean queueIdle() {
+        long start = System.nanoTime();
+        try {
+            TaskEntity entity;
+            while ((entity = mQueue.poll()) != null) {
+                mRunner.runIdleTask(entity);
+                if (System.nanoTime() - start >= mBudgetNanos) {
+                    break;
+                }
+            }
+        } finally {
+            // 任务抛出异常时也要清除标记，否则之后的空闲任务都不会再被安排执行
+            mScheduled.set(false);
+            // 超出预算或执行期间有新的空闲任务就绪，下一帧继续
+            if (!mQueue.isEmpty()) {
+                schedule();
+            }
+        }
+        return false;
+    }
+}
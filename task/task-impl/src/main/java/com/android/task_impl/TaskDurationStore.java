@@ -0,0 +1,189 @@
+package com.android.task_impl;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.android.task_interf.IVictor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+
+/**
+ * ClassName: TaskDurationStore Description: 持久化每个任务的历史耗时（指数移动平均），
+ * 下次启动时代替注解中的 cost 计算关键路径。读写都在单独的 IO 线程进行 Date: 2026/10/18 16:30
+ */
+public final class TaskDurationStore {
+    private static final String FILE_NAME = "victor_task_durations";
+    private static final int MAGIC = 0x56544431;
+    private static final int VERSION = 1;
+    /** 新样本的权重 */
+    private static final float ALPHA = 0.3f;
+
+    private final File mFile;
+    private final ExecutorService mIoExecutor;
+    /** 任务名 -> {平均耗时(微秒), 样本数}，读取完成前为 null，只在 IO 线程写入后整体替换 */
+    private volatile Map<String, long[]> mDurations;
+
+    private TaskDurationStore(File file) {
+        this.mFile = file;
+        this.mIoExecutor = new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(@NonNull Runnable r) {
+                        Thread thread = new Thread(r, "victor-duration-store");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+
+    /**
+     * 打开历史耗时记录并在 IO 线程开始读取。建议在 Application.attachBaseContext 中调用，
+     * 读取与 ContentProvider 初始化并行；start 时尚未读取完成则本次使用注解中的 cost
+     *
+     * @param context 上下文
+     *
+     * @return 历史耗时记录
+     */
+    public static TaskDurationStore open(@NonNull Context context) {
+        final TaskDurationStore store = new TaskDurationStore(new File(context.getFilesDir(), FILE_NAME));
+        store.mIoExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                store.mDurations = store.read();
+            }
+        });
+        return store;
+    }
+
+    /**
+     * @return 是否已读取完成
+     */
+    public boolean isLoaded() {
+        return mDurations != null;
+    }
+
+    /**
+     * 获取任务的平均耗时
+     *
+     * @param name 任务名
+     *
+     * @return 平均耗时（微秒），没有记录返回 -1
+     */
+    public long getAverageMicros(String name) {
+        Map<String, long[]> durations = mDurations;
+        long[] value = durations == null ? null : durations.get(name);
+        return value == null ? -1 : value[0];
+    }
+
+    /**
+     * 记录本次启动的任务耗时并在 IO 线程写入文件
+     *
+     * @param spans 本次启动的任务耗时
+     */
+    void record(final List<TaskSpan> spans) {
+        mIoExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Map<String, long[]> old = mDurations != null ? mDurations : read();
+                Map<String, long[]> durations = new HashMap<>(old);
+                for (TaskSpan span : spans) {
+                    long micros = span.getDuration() / 1000;
+                    long[] value = durations.get(span.name);
+                    if (value == null) {
+                        durations.put(span.name, new long[]{micros, 1});
+                    } else {
+                        long average = (long) (value[0] * (1 - ALPHA) + micros * ALPHA);
+                        durations.put(span.name, new long[]{average, value[1] + 1});
+                    }
+                }
+                write(durations);
+                mDurations = durations;
+            }
+        });
+    }
+
+    /**
+     * 读取文件，格式：magic、version、count，之后每条为 name(UTF)、平均耗时(long)、样本数(int)
+     */
+    private Map<String, long[]> read() {
+        Map<String, long[]> durations = new HashMap<>();
+        if (!mFile.exists()) {
+            return durations;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return durations;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                long average = in.readLong();
+                int samples = in.readInt();
+                durations.put(name, new long[]{average, samples});
+            }
+        } catch (IOException e) {
+            Log.w(IVictor.TAG, "读取任务历史耗时失败", e);
+            durations.clear();
+        } finally {
+            closeQuietly(in);
+        }
+        return durations;
+    }
+
+    /**
+     * 先写临时文件再重命名，进程中途被杀也不会留下损坏的文件
+     */
+    private void write(Map<String, long[]> durations) {
+        File temp = new File(mFile.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(durations.size());
+            for (Map.Entry<String, long[]> entry : durations.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue()[0]);
+                out.writeInt((int) entry.getValue()[1]);
+            }
+            out.close();
+            out = null;
+            if (!temp.renameTo(mFile)) {
+                Log.w(IVictor.TAG, "写入任务历史耗时失败：" + mFile);
+            }
+        } catch (IOException e) {
+            Log.w(IVictor.TAG, "写入任务历史耗时失败", e);
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.android.task_impl;
+
+import android.os.Process;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import androidx.annotation.NonNull;
+
+/**
+ * ClassName: TaskExecutors Description: 后台任务线程池：CPU 密集任务使用与核数相同的线程，
+ * IO 任务使用线程数更多、优先级略低的线程，阻塞等待时不占用 CPU 线程 Date: 2026/10/18 11:03
+ */
+public final class TaskExecutors {
+    /** 空闲线程存活时间，启动阶段结束后线程自动回收 */
+    private static final long KEEP_ALIVE_SECONDS = 5;
+    /** IO 线程数下限 */
+    private static final int MIN_IO_POOL_SIZE = 8;
+    /** CPU 线程优先级 */
+    private static final int CPU_THREAD_PRIORITY = Process.THREAD_PRIORITY_DEFAULT;
+    /** IO 线程优先级，线程数多于核数，略低于 CPU 线程，醒来做计算时不抢占 CPU 任务 */
+    private static final int IO_THREAD_PRIORITY = Process.THREAD_PRIORITY_DEFAULT
+            + Process.THREAD_PRIORITY_LESS_FAVORABLE;
+
+    private TaskExecutors() {
+    }
+
+    /**
+     * @return 默认线程数，与 CPU 核数一致
+     */
+    public static int defaultPoolSize() {
+        return Math.max(2, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @return IO 线程数，为核数的两倍且不少于 MIN_IO_POOL_SIZE
+     */
+    public static int ioPoolSize() {
+        return Math.max(MIN_IO_POOL_SIZE, 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 创建默认大小的后台任务线程池，即 CPU 线程池
+     *
+     * @return 线程池
+     */
+    public static ExecutorService newDefaultExecutor() {
+        return newExecutor(defaultPoolSize());
+    }
+
+    /**
+     * 创建 IO 任务线程池，线程按需创建，空闲后回收
+     *
+     * @return 线程池
+     */
+    public static ExecutorService newIoExecutor() {
+        return newExecutor(ioPoolSize(), "victor-io-", IO_THREAD_PRIORITY);
+    }
+
+    /**
+     * 创建固定大小的 CPU 任务线程池，排队中的任务按 {@link Comparable} 顺序出队
+     *
+     * @param poolSize 线程数
+     *
+     * @return 线程池
+     */
+    public static ExecutorService newExecutor(int poolSize) {
+        return newExecutor(poolSize, "victor-task-", CPU_THREAD_PRIORITY);
+    }
+
+    private static ExecutorService newExecutor(int poolSize, String namePrefix, int priority) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>(), new TaskThreadFactory(namePrefix, priority));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 任务线程工厂
+     */
+    private static class TaskThreadFactory implements ThreadFactory {
+        private final AtomicInteger mCount = new AtomicInteger();
+        private final String mNamePrefix;
+        private final int mPriority;
+
+        TaskThreadFactory(String namePrefix, int priority) {
+            this.mNamePrefix = namePrefix;
+            this.mPriority = priority;
+        }
+
+        @Override
+        public Thread newThread(@NonNull final Runnable r) {
+            // 线程优先级只能在线程内设置，否则继承创建线程的主线程的优先级
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(mPriority);
+                    r.run();
+                }
+            }, mNamePrefix + mCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
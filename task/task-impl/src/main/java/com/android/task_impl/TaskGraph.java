@@ -0,0 +1,376 @@
+package com.android.task_impl;
+
+import android.util.Log;
+
+import com.android.task_annotation.TaskEntity;
+import com.android.task_interf.IVictor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * ClassName: TaskGraph Description: 任务有向无环图，邻接表以 CSR 形式保存 Date: 2026/10/18 10:12
+ */
+final class TaskGraph {
+    /** 延迟任务额外占用的入度，相当于一个“等待请求”的虚拟依赖，请求时解除 */
+    private static final int DEFERRED = 1 << 24;
+
+    /** 任务集合，下标即任务 id */
+    private final ArrayList<TaskEntity> mTasks;
+    /** 任务名 -> 任务 id */
+    private final HashMap<String, Integer> mNameIndex;
+    /** 每个任务尚未完成的依赖数（入度），任务完成时并发递减 */
+    private final AtomicIntegerArray mInDegree;
+    /** 任务 i 的子任务为 mDependents[mDependentsOffset[i], mDependentsOffset[i + 1]) */
+    private final int[] mDependentsOffset;
+    /** 所有任务的子任务 id，按任务 id 顺序连续存放 */
+    private final int[] mDependents;
+    /** 延迟执行且尚未被请求的任务标记为 1 */
+    private final AtomicIntegerArray mDeferred;
+    /** 任务就绪监听，为 null 时不回调 */
+    private volatile ReadyListener mReadyListener;
+
+    /**
+     * 任务就绪监听
+     */
+    interface ReadyListener {
+        /**
+         * 任务依赖全部解除，入队之前在解除依赖的线程回调，每个任务只回调一次
+         *
+         * @param id         任务 id
+         * @param releasedBy 最后解除依赖的任务 id，由请求或启动直接入队时为 -1
+         */
+        void onReady(int id, int releasedBy);
+    }
+
+    private TaskGraph(ArrayList<TaskEntity> tasks, HashMap<String, Integer> nameIndex, int[] inDegree,
+                      int[] dependentsOffset, int[] dependents) {
+        this.mTasks = tasks;
+        this.mNameIndex = nameIndex;
+        this.mInDegree = new AtomicIntegerArray(inDegree);
+        this.mDependentsOffset = dependentsOffset;
+        this.mDependents = dependents;
+        this.mDeferred = new AtomicIntegerArray(tasks.size());
+    }
+
+    /**
+     * 根据任务集合创建任务图，并为每个任务分配 id
+     *
+     * @param tasks 任务集合
+     *
+     * @return 任务图
+     */
+    static TaskGraph build(ArrayList<TaskEntity> tasks) {
+        int size = tasks.size();
+        HashMap<String, Integer> nameIndex = new HashMap<>(size * 4 / 3 + 1);
+        for (int i = 0; i < size; i++) {
+            TaskEntity entity = tasks.get(i);
+            entity.id = i;
+            nameIndex.put(entity.name, i);
+        }
+        // 第一遍：统计入度和每个任务的子任务数
+        int[] inDegree = new int[size];
+        int[] dependentsOffset = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            String[] depends = tasks.get(i).depends;
+            if (depends == null) {
+                continue;
+            }
+            for (String dependTaskName : depends) {
+                Integer parent = nameIndex.get(dependTaskName);
+                if (parent == null) {
+                    // 依赖的任务不存在（或不在当前进程），视为已完成
+                    Log.w(IVictor.TAG, "任务 " + tasks.get(i).name + " 依赖的任务 " + dependTaskName + " 不存在，忽略该依赖");
+                    continue;
+                }
+                inDegree[i]++;
+                dependentsOffset[parent + 1]++;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            dependentsOffset[i + 1] += dependentsOffset[i];
+        }
+        // 第二遍：填充子任务
+        int[] dependents = new int[dependentsOffset[size]];
+        int[] cursor = new int[size];
+        System.arraycopy(dependentsOffset, 0, cursor, 0, size);
+        for (int i = 0; i < size; i++) {
+            String[] depends = tasks.get(i).depends;
+            if (depends == null) {
+                continue;
+            }
+            for (String dependTaskName : depends) {
+                Integer parent = nameIndex.get(dependTaskName);
+                if (parent != null) {
+                    dependents[cursor[parent]++] = i;
+                }
+            }
+        }
+        return new TaskGraph(tasks, nameIndex, inDegree, dependentsOffset, dependents);
+    }
+
+    /**
+     * 使用编译期生成的任务图，不再解析依赖名称，只建立任务名索引
+     *
+     * @param tasks            任务集合，顺序与编译期生成任务图时一致
+     * @param inDegree         每个任务的入度
+     * @param dependentsOffset 子任务起始位置
+     * @param dependents       子任务 id
+     *
+     * @return 任务图
+     */
+    static TaskGraph fromCompiled(ArrayList<TaskEntity> tasks, int[] inDegree, int[] dependentsOffset,
+                                  int[] dependents) {
+        int size = tasks.size();
+        HashMap<String, Integer> nameIndex = new HashMap<>(size * 4 / 3 + 1);
+        for (int i = 0; i < size; i++) {
+            TaskEntity entity = tasks.get(i);
+            entity.id = i;
+            nameIndex.put(entity.name, i);
+        }
+        return new TaskGraph(tasks, nameIndex, inDegree, dependentsOffset, dependents);
+    }
+
+    /**
+     * 解码插件写入的整型数组，每个 char 表示一个数
+     *
+     * @param encoded 编码后的字符串
+     *
+     * @return 整型数组
+     */
+    static int[] decode(String encoded) {
+        int[] values = new int[encoded.length()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = encoded.charAt(i);
+        }
+        return values;
+    }
+
+    /**
+     * @param listener 任务就绪监听，需在任务开始执行之前设置
+     */
+    void setReadyListener(ReadyListener listener) {
+        this.mReadyListener = listener;
+    }
+
+    /**
+     * @return 任务数
+     */
+    int size() {
+        return mTasks.size();
+    }
+
+    /**
+     * @param id 任务 id
+     *
+     * @return 任务实体
+     */
+    TaskEntity get(int id) {
+        return mTasks.get(id);
+    }
+
+    /**
+     * 通过任务名寻找任务 id
+     *
+     * @param name 任务名
+     *
+     * @return 任务 id，不存在返回 -1
+     */
+    int indexOf(String name) {
+        Integer id = mNameIndex.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param id 任务 id
+     *
+     * @return 尚未完成的依赖数
+     */
+    int inDegree(int id) {
+        return mInDegree.get(id);
+    }
+
+    /**
+     * 任务 id 的子任务为 dependent(dependentsStart(id)) ... dependent(dependentsEnd(id) - 1)
+     *
+     * @param id 任务 id
+     *
+     * @return 子任务起始位置
+     */
+    int dependentsStart(int id) {
+        return mDependentsOffset[id];
+    }
+
+    /**
+     * @param id 任务 id
+     *
+     * @return 子任务结束位置（不含）
+     */
+    int dependentsEnd(int id) {
+        return mDependentsOffset[id + 1];
+    }
+
+    /**
+     * @param index 子任务位置
+     *
+     * @return 子任务 id
+     */
+    int dependent(int index) {
+        return mDependents[index];
+    }
+
+    /**
+     * 任务完成后解除其子任务的依赖，依赖全部解除的子任务入队，耗时 O(出度)。
+     * 入度原子递减，每个子任务只会被最后解除依赖的线程入队一次
+     *
+     * @param id    已完成的任务 id
+     * @param queue 就绪队列
+     */
+    void release(int id, Queue<TaskEntity> queue) {
+        for (int i = mDependentsOffset[id], end = mDependentsOffset[id + 1]; i < end; i++) {
+            int child = mDependents[i];
+            if (mInDegree.decrementAndGet(child) == 0) {
+                notifyReady(child, id);
+                queue.offer(mTasks.get(child));
+            }
+        }
+    }
+
+    private void notifyReady(int id, int releasedBy) {
+        ReadyListener listener = mReadyListener;
+        if (listener != null) {
+            listener.onReady(id, releasedBy);
+        }
+    }
+
+    /**
+     * 将没有被非懒加载任务（直接或间接）依赖的懒加载任务标记为延迟执行：依赖全部完成后也不会入队，
+     * 直到被 {@link #request} 请求。需在任务开始执行之前调用
+     *
+     * @param order 拓扑序
+     *
+     * @return 延迟执行的任务数
+     */
+    int deferLazyTasks(int[] order) {
+        // 按拓扑序逆序，子任务需要在启动时执行则父任务也需要
+        boolean[] eager = new boolean[order.length];
+        int deferred = 0;
+        for (int k = order.length - 1; k >= 0; k--) {
+            int id = order[k];
+            boolean needed = !mTasks.get(id).lazy;
+            for (int i = mDependentsOffset[id], end = mDependentsOffset[id + 1]; i < end && !needed; i++) {
+                needed = eager[mDependents[i]];
+            }
+            eager[id] = needed;
+            if (!needed) {
+                mDeferred.set(id, 1);
+                mInDegree.addAndGet(id, DEFERRED);
+                deferred++;
+            }
+        }
+        return deferred;
+    }
+
+    /**
+     * 请求执行延迟任务及其所有尚未请求的延迟祖先任务，可在任意线程并发调用，每个任务只会被请求一次。
+     * 依赖已全部完成的任务直接入队，其余任务在依赖完成时由 {@link #release} 入队
+     *
+     * @param id      任务 id
+     * @param queue   就绪队列
+     * @param pending 首次被请求的任务数在任务可能入队之前加到 pending 上，任务完成时由调用方递减
+     *
+     * @return 首次被请求的任务数
+     */
+    int request(int id, Queue<TaskEntity> queue, AtomicInteger pending) {
+        // 先标记所有需要请求的任务，再统一解除“等待请求”的虚拟依赖
+        int[] requested = new int[size()];
+        int count = 0;
+        if (mDeferred.compareAndSet(id, 1, 2)) {
+            requested[count++] = id;
+        }
+        for (int k = 0; k < count; k++) {
+            String[] depends = mTasks.get(requested[k]).depends;
+            if (depends == null) {
+                continue;
+            }
+            for (String dependTaskName : depends) {
+                int parent = indexOf(dependTaskName);
+                if (parent != -1 && mDeferred.compareAndSet(parent, 1, 2)) {
+                    requested[count++] = parent;
+                }
+            }
+        }
+        if (count == 0) {
+            return 0;
+        }
+        pending.addAndGet(count);
+        for (int k = 0; k < count; k++) {
+            int current = requested[k];
+            if (mInDegree.addAndGet(current, -DEFERRED) == 0) {
+                notifyReady(current, -1);
+                queue.offer(mTasks.get(current));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param id 任务 id
+     *
+     * @return 是否为延迟任务（无论是否已被请求）
+     */
+    boolean isDeferred(int id) {
+        return mDeferred.get(id) != 0;
+    }
+
+    /**
+     * 拓扑排序，耗时 O(V + E)，不改变入度
+     *
+     * @return 拓扑序，存在循环依赖时返回 null
+     */
+    int[] topologicalOrder() {
+        int size = size();
+        int[] inDegree = new int[size];
+        for (int i = 0; i < size; i++) {
+            inDegree[i] = mInDegree.get(i);
+        }
+        // order 同时作为队列使用，[head, tail) 为待处理的任务
+        int[] order = new int[size];
+        int tail = 0;
+        for (int i = 0; i < size; i++) {
+            if (inDegree[i] == 0) {
+                order[tail++] = i;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int id = order[head];
+            for (int i = mDependentsOffset[id], end = mDependentsOffset[id + 1]; i < end; i++) {
+                int child = mDependents[i];
+                if (--inDegree[child] == 0) {
+                    order[tail++] = child;
+                }
+            }
+        }
+        return tail == size ? order : null;
+    }
+
+    /**
+     * 按拓扑序逆序计算每个任务到最后一个任务的最长路径耗时，写入 {@link TaskEntity#criticalPath}
+     *
+     * @param order   拓扑序
+     * @param weights 每个任务的耗时
+     */
+    void computeCriticalPath(int[] order, long[] weights) {
+        for (int k = order.length - 1; k >= 0; k--) {
+            int id = order[k];
+            long longest = 0;
+            for (int i = mDependentsOffset[id], end = mDependentsOffset[id + 1]; i < end; i++) {
+                longest = Math.max(longest, mTasks.get(mDependents[i]).criticalPath);
+            }
+            mTasks.get(id).criticalPath = longest + weights[id];
+        }
+    }
+}
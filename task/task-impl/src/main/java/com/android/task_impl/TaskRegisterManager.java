@@ -1,24 +1,35 @@
 package com.android.task_impl;
 
-import android.annotation.SuppressLint;
 import android.app.Application;
 import android.os.Handler;
-import android.os.Message;
+import android.os.Looper;
+import android.os.Trace;
 import android.util.Log;
 
+import com.android.task_annotation.ITaskConstant;
+import com.android.task_annotation.ITask;
 import com.android.task_annotation.ITaskRegister;
 import com.android.task_annotation.TaskEntity;
+import com.android.task_interf.IAsyncTask;
 import com.android.task_interf.IRunTask;
 import com.android.task_interf.IVictor;
 import com.android.task_interf.RunTaskListener;
+import com.android.task_interf.TaskTimeoutListener;
+import com.android.task_interf.TaskCompletion;
 import com.android.task_interf.TaskProcessUtil;
 
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.Objects;
-import java.util.PriorityQueue;
-
-import androidx.annotation.NonNull;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * ClassName: TaskRegisterManager Description: 任务注册管理类 Author: wudi41 Date: 2022/8/31 19:09
@@ -31,12 +42,72 @@ public class TaskRegisterManager {
     private RunTaskListener mListener;
     /** 启动任务集合 */
     private final ArrayList<TaskEntity> mTaskList = new ArrayList<>();
-    /** 没有依赖的任务的启动任务队列 */
-    private final PriorityQueue<TaskEntity> mNoDependencyQueue = new PriorityQueue<>();
-    /** 任务执行后通知执行结果 */
+    /** 没有依赖的任务的启动任务队列，后台线程与主线程并发读写 */
+    private final PriorityBlockingQueue<TaskEntity> mNoDependencyQueue = new PriorityBlockingQueue<>();
+    /** 依赖已全部完成、等待在主线程执行的任务，任意线程入队，只在主线程出队 */
+    private final PriorityBlockingQueue<TaskEntity> mMainThreadQueue = new PriorityBlockingQueue<>();
+    /** 是否已向主线程投递执行 mMainThreadQueue 的消息，无论多少任务就绪都只投递一条 */
+    private final AtomicBoolean mMainDrainPosted = new AtomicBoolean();
+    /** 主线程是否正在执行 mMainThreadQueue，只在主线程读写，防止主线程任务中再次触发时重入 */
+    private boolean mMainDraining;
+    /** 主线程 Handler，后台线程完成后将就绪的主线程任务切回主线程 */
     private Handler mHandler;
-    /** 任务拓扑关系表  x > y 表示有向图依赖关系  y > x 表示当前任务的子任务 */
-    private boolean[][] mTaskRelationalTable;
+    /** 在主线程执行 mMainThreadQueue 中的任务 */
+    private final Runnable mMainDrainRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mMainDrainPosted.set(false);
+            drainMainThreadQueue();
+        }
+    };
+    /** 空闲阶段的主线程任务调度 */
+    private IdleTaskDispatcher mIdleDispatcher;
+    /** 每帧执行空闲任务的时间预算（毫秒） */
+    private long mIdleFrameBudgetMs = IdleTaskDispatcher.DEFAULT_FRAME_BUDGET_MS;
+    /** 任务有向无环图 */
+    private volatile TaskGraph mTaskGraph;
+    /** 启动阶段尚未执行完成的任务数，不含延迟执行的懒加载任务 */
+    private final AtomicInteger mRemainingTaskCount = new AtomicInteger();
+    /** 已开始调度（启动任务和已请求的懒加载任务）且尚未执行完成的任务数，为 0 时释放资源 */
+    private final AtomicInteger mUnfinishedTaskCount = new AtomicInteger();
+    /** 尚未请求的懒加载任务数，不为 0 时释放资源后仍保留任务图，请求时重新创建执行资源 */
+    private final AtomicInteger mUnrequestedLazyCount = new AtomicInteger();
+    /** 请求懒加载任务与释放资源互斥，避免释放资源时丢失刚请求的任务 */
+    private final Object mResourceLock = new Object();
+    /** 执行资源（执行器、看门狗、Handler）是否已释放，由 mResourceLock 保护 */
+    private boolean mRunResourcesReleased;
+    /** 后台任务执行器，执行 CPU 任务和未指定 dispatcher 的后台任务 */
+    private Executor mExecutor;
+    /** 执行器是否由内部创建，内部创建的执行器在任务全部完成后关闭 */
+    private boolean mOwnExecutor;
+    /** IO 任务执行器，当前进程没有 IO 任务时为 null */
+    private Executor mIoExecutor;
+    /** IO 任务执行器是否由内部创建 */
+    private boolean mOwnIoExecutor;
+    /** 不属于当前进程的任务，按任务 id 标记，出队后直接视为完成 */
+    private boolean[] mOtherProcessTasks;
+    /** 按任务 id 存放的完成信号，有线程等待该任务时才创建 */
+    private volatile AtomicReferenceArray<CountDownLatch> mTaskLatches;
+    /** 按任务 id 标记任务是否已释放（执行完成或超时后提前释放），保证每个任务只释放一次，任务图释放后仍保留 */
+    private volatile AtomicIntegerArray mReleasedTasks;
+    /** 任务超时监听 */
+    private TaskTimeoutListener mTimeoutListener;
+    /** 任务看门狗，没有设置 timeout 的任务时为 null */
+    private volatile TaskWatchdog mWatchdog;
+    /** 任务历史耗时，为 null 时只使用注解中的 cost */
+    private TaskDurationStore mDurationStore;
+    /** 本次启动的任务耗时记录 */
+    private volatile TaskTrace mTaskTrace;
+    /** 编译期生成的任务入度，由插件注入 init() 写入 */
+    private int[] mCompiledInDegree;
+    /** 编译期生成的子任务起始位置 */
+    private int[] mCompiledDependentsOffset;
+    /** 编译期生成的子任务 id */
+    private int[] mCompiledDependents;
+    /** 编译期按 process 声明合并的进程分组 */
+    private String[][] mCompiledProcessGroups;
+    /** 编译期生成的每个任务所属的进程分组 */
+    private int[] mCompiledTaskProcessGroup;
 
     /**
      * 静态内部类单例
@@ -69,6 +140,24 @@ public class TaskRegisterManager {
         register.register(mTaskList);
     }
 
+    /**
+     * 注册编译期生成的任务图，由插件在所有 register 调用之后注入，任务 id 即任务在集合中的位置
+     *
+     * @param inDegree         每个任务的入度
+     * @param dependentsOffset 子任务起始位置
+     * @param dependents       子任务 id
+     * @param processGroups    进程分组
+     * @param taskProcessGroup 每个任务所属的进程分组
+     */
+    private void registerSchedule(String inDegree, String dependentsOffset, String dependents, String processGroups,
+                                  String taskProcessGroup) {
+        mCompiledInDegree = TaskGraph.decode(inDegree);
+        mCompiledDependentsOffset = TaskGraph.decode(dependentsOffset);
+        mCompiledDependents = TaskGraph.decode(dependents);
+        mCompiledProcessGroups = TaskProcessUtil.parseProcessGroups(processGroups);
+        mCompiledTaskProcessGroup = TaskGraph.decode(taskProcessGroup);
+    }
+
     /**
      * 获取任务集合
      *
@@ -79,107 +168,436 @@ public class TaskRegisterManager {
     }
 
     /**
-     * 执行任务
+     * 开启按历史耗时调度：使用上次启动记录的平均耗时计算关键路径，本次启动结束后更新记录
+     *
+     * @param store 历史耗时记录，需在 start 之前设置，为 null 关闭
      */
-    @SuppressLint("HandlerLeak")
-    public void start(Application application, RunTaskListener listener) {
-        if (checkCircularDependency()) {
-            throw new RuntimeException("启动任务存在循环依赖!");
+    public void setDurationStore(TaskDurationStore store) {
+        this.mDurationStore = store;
+    }
+
+    /**
+     * 设置每帧执行空闲任务（idle = true 的主线程任务）的时间预算，单个任务超出预算时下一帧再继续执行后续任务
+     *
+     * @param millis 时间预算（毫秒），需在 start 之前设置
+     */
+    public void setIdleFrameBudget(long millis) {
+        this.mIdleFrameBudgetMs = millis;
+    }
+
+    /**
+     * 设置任务超时监听，任务执行时间超过注解中的 timeout 时回调，未设置时只输出到日志
+     *
+     * @param listener 超时监听，需在 start 之前设置
+     */
+    public void setTimeoutListener(TaskTimeoutListener listener) {
+        this.mTimeoutListener = listener;
+    }
+
+    /**
+     * 获取本次启动的任务耗时记录，在 {@link RunTaskListener#onAllComplete()} 之后数据完整
+     *
+     * @return 耗时记录，未启动时为 null
+     */
+    public TaskTrace getTaskTrace() {
+        return mTaskTrace;
+    }
+
+    /**
+     * 执行懒加载任务，会同时执行它尚未执行的懒加载依赖任务。可在任意线程调用，
+     * 重复或并发调用时任务只会执行一次，任务完成时回调 {@link RunTaskListener#onSingleComplete(TaskEntity)}
+     *
+     * @param name 任务名
+     *
+     * @return 任务是否存在，未调用 start 时返回 false；任务已执行完成时返回 true
+     */
+    public boolean startLazyTask(String name) {
+        int requested;
+        synchronized (mResourceLock) {
+            TaskGraph graph = mTaskGraph;
+            if (graph == null) {
+                // 任务全部执行完成后任务图已释放
+                if (isTaskReleased(name)) {
+                    return true;
+                }
+                Log.w(IVictor.TAG, "任务尚未启动，忽略懒加载任务 " + name);
+                return false;
+            }
+            int id = graph.indexOf(name);
+            if (id == -1) {
+                Log.w(IVictor.TAG, "懒加载任务 " + name + " 不存在");
+                return false;
+            }
+            if (mRunResourcesReleased && graph.isDeferred(id)) {
+                // 已执行的任务都已完成并释放了执行资源，任务入队之前重新创建
+                createRunResources(mExecutor, mIoExecutor);
+            }
+            requested = graph.request(id, mNoDependencyQueue, mUnfinishedTaskCount);
+            mUnrequestedLazyCount.addAndGet(-requested);
+            if (requested == 0 && mUnfinishedTaskCount.get() == 0) {
+                releaseResources();
+            }
+        }
+        if (requested > 0) {
+            Log.i(IVictor.TAG, "请求执行懒加载任务 " + name);
+            luncherTask();
+        }
+        return true;
+    }
+
+    /**
+     * 阻塞当前线程直到任务完成或超时，见 {@link #awaitTasks(long, TimeUnit, String...)}
+     *
+     * @param name    任务名
+     * @param timeout 超时时间
+     * @param unit    超时时间单位
+     *
+     * @return 任务是否已完成
+     */
+    public boolean awaitTask(String name, long timeout, TimeUnit unit) {
+        return awaitTasks(timeout, unit, name);
+    }
+
+    /**
+     * 阻塞当前线程直到指定的任务全部完成或超时，其余任务继续并行执行。等待尚未请求的懒加载任务时会先请求执行。
+     * 阻塞时长输出到日志并记录在 {@link TaskTrace#getAwaitSpans()}。
+     * 注意：在主线程等待主线程任务（或依赖主线程任务的任务）只能等到超时
+     *
+     * @param timeout 超时时间
+     * @param unit    超时时间单位
+     * @param names   任务名
+     *
+     * @return 任务是否全部完成（超时后按 TIMEOUT_POLICY_RELEASE 提前释放的任务视为完成），
+     * 超时、任务不存在或未调用 start 时返回 false
+     */
+    public boolean awaitTasks(long timeout, TimeUnit unit, String... names) {
+        long begin = System.nanoTime();
+        long deadline = begin + unit.toNanos(timeout);
+        TaskGraph graph = mTaskGraph;
+        AtomicReferenceArray<CountDownLatch> latches = mTaskLatches;
+        AtomicIntegerArray released = mReleasedTasks;
+        boolean completed = true;
+        try {
+            for (String name : names) {
+                if (graph == null || latches == null || released == null) {
+                    // 未启动或任务全部完成后任务图已释放，与任务图存在时一样以是否释放判断
+                    completed = isTaskReleased(name);
+                } else {
+                    completed = awaitTask(graph, latches, released, name, deadline);
+                }
+                if (!completed) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            completed = false;
+        }
+        long end = System.nanoTime();
+        String label = "await " + Arrays.toString(names);
+        TaskTrace trace = mTaskTrace;
+        if (trace != null) {
+            trace.onAwait(label, begin, end);
+        }
+        Log.i(IVictor.TAG, label + " 阻塞 " + (end - begin) / 1000000 + "ms" + (completed ? "" : "，未全部完成"));
+        return completed;
+    }
+
+    private boolean awaitTask(TaskGraph graph, AtomicReferenceArray<CountDownLatch> latches,
+                              AtomicIntegerArray released, String name, long deadline) throws InterruptedException {
+        int id = graph.indexOf(name);
+        if (id == -1) {
+            Log.w(IVictor.TAG, "等待的任务 " + name + " 不存在");
+            return false;
         }
+        // 以是否释放判断，超时后按 TIMEOUT_POLICY_RELEASE 提前释放的任务 executed 仍为 false
+        if (released.get(id) == 1) {
+            return true;
+        }
+        if (graph.isDeferred(id)) {
+            startLazyTask(name);
+        }
+        CountDownLatch latch = latches.get(id);
+        if (latch == null) {
+            latches.compareAndSet(id, null, new CountDownLatch(1));
+            latch = latches.get(id);
+        }
+        // 创建信号之后再次检查，避免任务恰好在创建信号之前释放而错过通知
+        if (released.get(id) == 1) {
+            return true;
+        }
+        long remaining = deadline - System.nanoTime();
+        return remaining > 0 && latch.await(remaining, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 任务是否已释放（执行完成或超时后提前释放），任务图释放后使用
+     *
+     * @param name 任务名
+     *
+     * @return 未启动或任务不存在时返回 false
+     */
+    private boolean isTaskReleased(String name) {
+        AtomicIntegerArray released = mReleasedTasks;
+        if (released == null) {
+            return false;
+        }
+        for (TaskEntity entity : mTaskList) {
+            if (entity.name.equals(name)) {
+                return entity.id >= 0 && released.get(entity.id) == 1;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 执行任务，后台任务使用默认线程池执行
+     */
+    public void start(Application application, RunTaskListener listener) {
+        start(application, listener, null);
+    }
+
+    /**
+     * 执行任务，IO 任务使用默认 IO 线程池执行
+     *
+     * @param executor 后台任务执行器，可与应用共用线程池；为 null 时使用 CPU 核数大小的默认线程池
+     */
+    public void start(Application application, RunTaskListener listener, Executor executor) {
+        start(application, listener, executor, null);
+    }
+
+    /**
+     * 执行任务
+     *
+     * @param executor   CPU 任务和未指定 dispatcher 的后台任务的执行器，可与应用共用线程池；
+     *                   为 null 时使用 CPU 核数大小的默认线程池
+     * @param ioExecutor IO 任务执行器，可与应用共用 IO 线程池；为 null 时使用默认 IO 线程池
+     */
+    public void start(Application application, RunTaskListener listener, Executor executor, Executor ioExecutor) {
         this.mApplication = application;
         this.mListener = listener;
-        // 去除task map不符合当前进程的任务
-        removeOtherProcessTask();
         if (mTaskList.size() == 0) {
             releaseResources();
             return;
         }
-        // 创建任务关系表
-        createTaskRelationalTable();
+        // 标记不符合当前进程的任务
+        markOtherProcessTask();
+        // 创建任务图
+        createTaskGraph();
+        int[] order = mTaskGraph.topologicalOrder();
+        if (order == null) {
+            throw new RuntimeException("启动任务存在循环依赖!");
+        }
+        // 懒加载任务不参与启动，请求时再计入未完成的任务数
+        int deferred = mTaskGraph.deferLazyTasks(order);
+        mRemainingTaskCount.set(mTaskGraph.size() - deferred);
+        mUnfinishedTaskCount.set(mTaskGraph.size() - deferred);
+        mUnrequestedLazyCount.set(deferred);
+        // 计算关键路径，就绪任务按关键路径长度调度
+        mTaskGraph.computeCriticalPath(order, getTaskWeights());
+        final TaskTrace trace = new TaskTrace(mTaskGraph);
+        mTaskTrace = trace;
+        mTaskGraph.setReadyListener(new TaskGraph.ReadyListener() {
+            @Override
+            public void onReady(int id, int releasedBy) {
+                trace.onReady(id, releasedBy);
+            }
+        });
+        createRunResources(executor, ioExecutor);
         // 首批没有依赖的模块任务入队
         NoDependsTaskQueueOffer();
-        mHandler = new Handler() {
+        if (mRemainingTaskCount.get() == 0) {
+            dispatchAllComplete();
+            releaseResources();
+        }
+        // 任务从队列出队，执行任务
+        luncherTask();
+    }
+
+    /**
+     * 创建执行任务需要的执行器、看门狗和主线程 Handler，启动时创建，释放后请求懒加载任务时重新创建
+     *
+     * @param executor   后台任务执行器，为 null 时内部创建
+     * @param ioExecutor IO 任务执行器，为 null 时内部创建
+     */
+    private void createRunResources(Executor executor, Executor ioExecutor) {
+        createWatchdog();
+        this.mOwnExecutor = executor == null;
+        this.mExecutor = executor != null ? executor : TaskExecutors.newDefaultExecutor();
+        createIoExecutor(ioExecutor);
+        mHandler = new Handler(Looper.getMainLooper());
+        mIdleDispatcher = new IdleTaskDispatcher(mHandler, new IdleTaskDispatcher.TaskRunner() {
             @Override
-            public void handleMessage(@NonNull Message msg) {
-                super.handleMessage(msg);
-                TaskEntity entity = (TaskEntity) msg.obj;
-                taskRunComplete(entity);
+            public void runIdleTask(TaskEntity entity) {
+                // 与后台任务一致，执行失败时视为完成，依赖它的任务继续执行
+                boolean completed = true;
+                try {
+                    completed = executeTask(entity);
+                } catch (Exception e) {
+                    Log.w(IVictor.TAG, "空闲任务 " + entity.name + " 执行失败，视为完成", e);
+                }
+                if (completed) {
+                    taskRunComplete(entity, true);
+                }
                 luncherTask();
             }
-        };
-        // 任务从队列出队，执行任务
-        luncherTask();
+        }, mIdleFrameBudgetMs);
+        mRunResourcesReleased = false;
     }
 
     /**
-     * 移除不符合当前进程的任务
+     * 标记不符合当前进程的任务。任务仍保留在任务图中以保持 id 与编译期一致，
+     * 依赖就绪后不执行直接完成，因此经过它的依赖顺序依然成立。
+     * 当前进程只与每个进程分组匹配一次，有编译期分组时不再读取任务的 process
      */
-    private void removeOtherProcessTask() {
-        Iterator<TaskEntity> iterator = mTaskList.iterator();
-        while (iterator.hasNext()) {
-            TaskEntity next = iterator.next();
-            if (!TaskProcessUtil.checkTaskProcess(mApplication, next)) {
-                iterator.remove();
+    private void markOtherProcessTask() {
+        int size = mTaskList.size();
+        mOtherProcessTasks = new boolean[size];
+        int[] taskGroup = mCompiledTaskProcessGroup;
+        String[][] groups = mCompiledProcessGroups;
+        if (taskGroup != null && taskGroup.length == size) {
+            boolean[] otherProcess = new boolean[groups.length];
+            for (int i = 0; i < groups.length; i++) {
+                otherProcess[i] = !TaskProcessUtil.checkProcess(mApplication, groups[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                mOtherProcessTasks[i] = otherProcess[taskGroup[i]];
+            }
+        } else {
+            HashMap<String, Boolean> otherProcess = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                String[] process = mTaskList.get(i).process;
+                String key = Arrays.toString(process);
+                Boolean other = otherProcess.get(key);
+                if (other == null) {
+                    other = !TaskProcessUtil.checkProcess(mApplication, process);
+                    otherProcess.put(key, other);
+                }
+                mOtherProcessTasks[i] = other;
             }
         }
+        mCompiledProcessGroups = null;
+        mCompiledTaskProcessGroup = null;
     }
 
     /**
-     * 检查循环依赖
+     * 计算关键路径使用的任务耗时（微秒）：优先使用历史平均耗时，没有记录时使用注解中的 cost（毫秒），
+     * 不属于当前进程的任务和延迟执行的任务为 0
      *
-     * @return true 有循环 false 无循环
+     * @return 按任务 id 排列的耗时
      */
-    private boolean checkCircularDependency() {
-        return false;
+    private long[] getTaskWeights() {
+        TaskDurationStore store = mDurationStore;
+        if (store != null && !store.isLoaded()) {
+            Log.i(IVictor.TAG, "任务历史耗时尚未读取完成，本次使用注解中的 cost");
+            store = null;
+        }
+        long[] weights = new long[mTaskGraph.size()];
+        for (int id = 0; id < weights.length; id++) {
+            if (mOtherProcessTasks[id] || mTaskGraph.isDeferred(id)) {
+                continue;
+            }
+            TaskEntity entity = mTaskGraph.get(id);
+            long history = store == null ? -1 : store.getAverageMicros(entity.name);
+            weights[id] = history >= 0 ? history : Math.max(0, entity.cost) * 1000L;
+        }
+        return weights;
     }
 
     /**
-     * 为每个任务标记子任务，并且子任务会根据优先级排序
+     * 创建任务图，为每个任务分配 id 并记录子任务和入度
      */
-    private void createTaskRelationalTable() {
-        mTaskRelationalTable = new boolean[mTaskList.size()][mTaskList.size()];
-        for (int x = 0; x < mTaskList.size(); x++) {
-            TaskEntity task = mTaskList.get(x);
-            if (task.depends == null) {
-                continue;
-            }
-            String[] depends = task.depends;
-            for (String dependTaskName : depends) {
-                int y = getTaskIndexByNameFromList(dependTaskName);
-                if (y == -1) {
-                    continue;
-                }
-                mTaskRelationalTable[x][y] = true;
+    private void createTaskGraph() {
+        boolean compiled = mCompiledInDegree != null && mCompiledInDegree.length == mTaskList.size();
+        if (compiled) {
+            mTaskGraph = TaskGraph.fromCompiled(mTaskList, mCompiledInDegree, mCompiledDependentsOffset,
+                    mCompiledDependents);
+        } else {
+            if (mCompiledInDegree != null) {
+                Log.w(IVictor.TAG, "编译期任务图与注册的任务数不一致，运行时重新构建任务图");
             }
+            mTaskGraph = TaskGraph.build(mTaskList);
         }
+        mCompiledInDegree = null;
+        mCompiledDependentsOffset = null;
+        mCompiledDependents = null;
+        mTaskLatches = new AtomicReferenceArray<>(mTaskGraph.size());
+        mReleasedTasks = new AtomicIntegerArray(mTaskGraph.size());
     }
 
     /**
-     * 通过任务名寻找任务实体位置
+     * 当前进程存在 IO 任务时准备 IO 任务执行器
      *
-     * @param dependTaskName 任务名
-     *
-     * @return 位置
+     * @param ioExecutor 外部传入的执行器，为 null 时内部创建
      */
-    private int getTaskIndexByNameFromList(String dependTaskName) {
-        for (int i = 0, mTaskListSize = mTaskList.size(); i < mTaskListSize; i++) {
-            TaskEntity entity = mTaskList.get(i);
-            if (entity == null) {
-                continue;
+    private void createIoExecutor(Executor ioExecutor) {
+        for (int id = 0, size = mTaskGraph.size(); id < size; id++) {
+            if (!mOtherProcessTasks[id] && mTaskGraph.get(id).dispatcher == ITaskConstant.DISPATCHER_IO) {
+                this.mOwnIoExecutor = ioExecutor == null;
+                this.mIoExecutor = ioExecutor != null ? ioExecutor : TaskExecutors.newIoExecutor();
+                return;
             }
-            if (Objects.equals(entity.name, dependTaskName)) {
-                return i;
+        }
+    }
+
+    /**
+     * 存在设置了 timeout 的任务时创建看门狗
+     */
+    private void createWatchdog() {
+        for (TaskEntity entity : mTaskList) {
+            if (entity.timeout > 0) {
+                mWatchdog = new TaskWatchdog(mTaskList.size(), new TaskWatchdog.Callback() {
+                    @Override
+                    public void onTimeout(TaskEntity entity, Thread thread, StackTraceElement[] stackTrace) {
+                        onTaskTimeout(entity, thread, stackTrace);
+                    }
+                });
+                return;
             }
         }
-        return -1;
+    }
+
+    /**
+     * 任务执行超时，在看门狗线程回调：先上报，再按任务的 timeoutPolicy 继续等待、提前释放依赖它的任务或使应用崩溃
+     *
+     * @param entity     任务
+     * @param thread     执行任务的线程
+     * @param stackTrace 执行任务的线程的调用栈
+     */
+    private void onTaskTimeout(TaskEntity entity, Thread thread, StackTraceElement[] stackTrace) {
+        String message = "任务 " + entity.name + " 执行超过 " + entity.timeout + "ms，线程 " + thread.getName();
+        RuntimeException error = new RuntimeException(message);
+        error.setStackTrace(stackTrace);
+        if (mTimeoutListener != null) {
+            mTimeoutListener.onTaskTimeout(entity, thread, stackTrace);
+        } else {
+            Log.w(IVictor.TAG, message, error);
+        }
+        switch (entity.timeoutPolicy) {
+            case ITaskConstant.TIMEOUT_POLICY_RELEASE:
+                // 任务继续执行，真正结束时不再重复释放；依赖它的任务此时就绪，就绪时间早于它的结束时间
+                if (releaseTask(entity)) {
+                    Log.w(IVictor.TAG, "任务 " + entity.name + " 超时，提前释放依赖它的任务");
+                    luncherTask();
+                }
+                break;
+            case ITaskConstant.TIMEOUT_POLICY_FAIL:
+                // 主线程任务卡住时投递到主线程的异常不会被执行，在看门狗线程交给执行任务的线程的异常处理
+                TaskWatchdog.dispatchUncaughtException(thread, error);
+                break;
+            default:
+                break;
+        }
     }
 
     /**
      * 首批没有依赖的模块任务集合入队
      */
     private void NoDependsTaskQueueOffer() {
-        for (TaskEntity entity : mTaskList) {
-            if (entity != null && (entity.depends == null || entity.depends.length == 0)) {
+        for (int id = 0, size = mTaskGraph.size(); id < size; id++) {
+            if (mTaskGraph.inDegree(id) == 0) {
+                TaskEntity entity = mTaskGraph.get(id);
+                mTaskTrace.onReady(id, -1);
                 mNoDependencyQueue.offer(entity);
                 Log.i(IVictor.TAG, "首次没有依赖的任务进队 ： entity = " + entity.toString());
             }
@@ -187,134 +605,321 @@ public class TaskRegisterManager {
     }
 
     /**
-     * 开启执行
+     * 开启执行，可在任意线程调用：后台任务交给执行器，空闲任务等待主线程空闲时执行，
+     * 主线程任务进入主线程队列，当前在主线程时直接执行，否则合并投递到主线程执行
      */
     private void luncherTask() {
-        if (mNoDependencyQueue.size() == 0) {
+        dispatchReadyTasks();
+        if (mMainThreadQueue.isEmpty()) {
             return;
         }
-        TaskEntity entity = mNoDependencyQueue.poll();
-        if (entity == null) {
-            luncherTask();
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            drainMainThreadQueue();
+        } else {
+            postMainThreadDrain();
+        }
+    }
+
+    /**
+     * 分发所有依赖已完成的任务，不在当前线程执行任务
+     */
+    private void dispatchReadyTasks() {
+        TaskEntity entity;
+        while ((entity = mNoDependencyQueue.poll()) != null) {
+            if (mOtherProcessTasks[entity.id]) {
+                mTaskTrace.onSkip(entity.id);
+                taskRunComplete(entity, false);
+            } else if (!entity.background && entity.idle) {
+                Log.i(IVictor.TAG, "任务 " + entity.name + " 等待主线程空闲时执行");
+                mIdleDispatcher.offer(entity);
+            } else if (entity.background) {
+                Log.i(IVictor.TAG, "任务 " + entity.name + " 开启子线程开始执行");
+                runTaskOnChildThread(entity);
+            } else {
+                mMainThreadQueue.offer(entity);
+            }
+        }
+    }
+
+    /**
+     * 在主线程循环执行就绪的主线程任务，直到队列为空。每个任务完成后先分发它释放的任务，
+     * 使后台任务不必等待后续主线程任务执行完才开始；栈深度不随主线程任务链的长度增长
+     */
+    private void drainMainThreadQueue() {
+        if (mMainDraining) {
             return;
         }
-        if (entity.background) {
-            Log.i(IVictor.TAG, "任务 " + entity.name + " 开启子线程开始执行");
-            runTaskOnChildThread(entity);
-        } else {
-            Log.i(IVictor.TAG, "任务 " + entity.name + " 当前线程开始执行");
-            runTaskOnUIThread(entity);
+        mMainDraining = true;
+        try {
+            TaskEntity entity;
+            while ((entity = mMainThreadQueue.poll()) != null) {
+                Log.i(IVictor.TAG, "任务 " + entity.name + " 主线程开始执行");
+                runTaskOnUIThread(entity);
+                dispatchReadyTasks();
+            }
+        } finally {
+            mMainDraining = false;
         }
     }
 
     /**
-     * 在主线程执行问题
+     * 投递一条消息到主线程执行主线程队列，已有未执行的消息时不重复投递
+     */
+    private void postMainThreadDrain() {
+        Handler handler = mHandler;
+        if (handler != null && mMainDrainPosted.compareAndSet(false, true)) {
+            handler.post(mMainDrainRunnable);
+        }
+    }
+
+    /**
+     * 在主线程执行任务
      *
      * @param entity 任务
      */
     private void runTaskOnUIThread(TaskEntity entity) {
-        IRunTask task = (IRunTask) entity.task;
-        task.execute(mApplication);
-        Message msg = new Message();
-        msg.obj = entity;
-        mHandler.handleMessage(msg);
+        if (executeTask(entity)) {
+            taskRunComplete(entity, true);
+        }
     }
 
     /**
-     * 在子线程执行任务
+     * 执行任务并记录耗时，同时输出到系统 trace。异步任务的耗时记录到调用完成信号为止，
+     * 完成时由 {@link AsyncTaskCompletion} 处理任务完成
      *
      * @param entity 任务
+     *
+     * @return 任务是否已完成，异步任务返回 false
      */
-    private void runTaskOnChildThread(TaskEntity entity) {
-        new Thread(new Runnable() {
-            @Override
-            public void run() {
-                IRunTask task = (IRunTask) entity.task;
-                try {
-                    task.execute(mApplication);
-                } catch (Exception e) {
-                    Log.i(IVictor.TAG, e.getMessage());
-                }
-                Message msg = new Message();
-                msg.obj = entity;
-                mHandler.handleMessage(msg);
+    private boolean executeTask(TaskEntity entity) {
+        TaskTrace trace = mTaskTrace;
+        TaskWatchdog watchdog = mWatchdog;
+        trace.onStart(entity.id);
+        Trace.beginSection(entity.name);
+        if (watchdog != null) {
+            watchdog.watch(entity);
+        }
+        ITask task = entity.getTask();
+        if (task instanceof IAsyncTask) {
+            AsyncTaskCompletion completion = new AsyncTaskCompletion(entity, trace, watchdog);
+            try {
+                ((IAsyncTask) task).execute(mApplication, completion);
+            } catch (RuntimeException e) {
+                Log.w(IVictor.TAG, "异步任务 " + entity.name + " 执行失败，视为完成", e);
+                completion.complete();
+            } finally {
+                Trace.endSection();
             }
-        }).start();
-        luncherTask();
+            return false;
+        }
+        try {
+            ((IRunTask) task).execute(mApplication);
+        } finally {
+            if (watchdog != null) {
+                watchdog.unwatch(entity);
+            }
+            Trace.endSection();
+            trace.onEnd(entity.id);
+        }
+        return true;
     }
 
     /**
-     * 任务执行完成
+     * 在子线程执行任务，IO 任务与 CPU 任务使用不同的执行器
      *
      * @param entity 任务
      */
-    private void taskRunComplete(TaskEntity entity) {
-        if (mListener != null) {
+    private void runTaskOnChildThread(TaskEntity entity) {
+        Executor executor = entity.dispatcher == ITaskConstant.DISPATCHER_IO ? mIoExecutor : mExecutor;
+        executor.execute(new TaskRunnable(entity));
+    }
+
+    /**
+     * 任务执行完成，可在任意线程并发调用
+     *
+     * @param entity 任务
+     * @param notify 是否回调单一任务完成，不属于当前进程的任务不回调
+     */
+    private void taskRunComplete(TaskEntity entity, boolean notify) {
+        if (notify && mListener != null) {
             mListener.onSingleComplete(entity);
         }
         entity.executed = true;
-        changeDependRelationalAndAddEntity2Queue(mTaskList.indexOf(entity));
-        if (checkAllTaskRunComplete()) {
-            if (mListener != null) {
-                mListener.onAllComplete();
-            }
+        releaseTask(entity);
+    }
+
+    /**
+     * 释放任务：唤醒等待它的线程、释放依赖它的任务并更新完成数，可在任意线程并发调用，每个任务只释放一次
+     *
+     * @param entity 任务
+     *
+     * @return 是否由本次调用释放，任务已释放过（如超时后提前释放）时返回 false
+     */
+    private boolean releaseTask(TaskEntity entity) {
+        AtomicIntegerArray released = mReleasedTasks;
+        if (released == null || !released.compareAndSet(entity.id, 0, 1)) {
+            return false;
+        }
+        CountDownLatch latch = mTaskLatches.get(entity.id);
+        if (latch != null) {
+            latch.countDown();
+        }
+        boolean deferred = mTaskGraph.isDeferred(entity.id);
+        changeDependRelationalAndAddEntity2Queue(entity.id);
+        if (!deferred && checkAllTaskRunComplete()) {
+            dispatchAllComplete();
+        }
+        // 启动阶段完成的回调处理完之后才可能释放资源
+        if (mUnfinishedTaskCount.decrementAndGet() == 0) {
             releaseResources();
         }
+        return true;
+    }
+
+    /**
+     * 启动阶段的任务全部完成，输出关键路径并回调，尚未请求的懒加载任务之后仍可执行
+     */
+    private void dispatchAllComplete() {
+        Log.i(IVictor.TAG, mTaskTrace.getCriticalPathReport());
+        if (mDurationStore != null) {
+            mDurationStore.record(mTaskTrace.getSpans());
+        }
+        if (mListener != null) {
+            mListener.onAllComplete();
+        }
     }
 
     /**
      * 取消依赖关系
      *
-     * @param i 被依赖的task index
+     * @param id 被依赖的task id
      */
-    private void changeDependRelationalAndAddEntity2Queue(int i) {
-        if (i < 0) {
+    private void changeDependRelationalAndAddEntity2Queue(int id) {
+        TaskGraph graph = mTaskGraph;
+        if (id < 0 || graph == null) {
             return;
         }
-        for (int x = 0; x < mTaskRelationalTable.length; x++) {
-            if (mTaskRelationalTable[x][i]) {
-                boolean hasDepend = false;
-                for (int y = 0; y < mTaskRelationalTable.length; y++) {
-                    if (y == i) {
-                        mTaskRelationalTable[x][y] = false;
-                    } else {
-                        hasDepend = hasDepend || mTaskRelationalTable[x][y];
-                    }
-                }
-                if (!hasDepend) {
-                    mNoDependencyQueue.offer(mTaskList.get(x));
-                }
-            }
-        }
+        graph.release(id, mNoDependencyQueue);
     }
 
     /**
-     * 检查任务是否全都完成
+     * 完成数减一并检查启动阶段的任务是否全都完成，只有最后一个完成的任务会返回 true
      *
      * @return 是否全部完成
      */
     private boolean checkAllTaskRunComplete() {
-        for (TaskEntity task : mTaskList) {
-            if (!task.executed) {
-                return false;
+        return mRemainingTaskCount.decrementAndGet() == 0;
+    }
+
+    /**
+     * 已调度的任务全部完成时释放资源。仍有尚未请求的懒加载任务时只释放执行资源，
+     * 保留任务图和 Application 供之后请求；否则全部释放
+     */
+    private void releaseResources() {
+        synchronized (mResourceLock) {
+            if (mUnfinishedTaskCount.get() != 0) {
+                // 释放之前又请求了懒加载任务
+                return;
             }
+            releaseRunResources();
+            if (mUnrequestedLazyCount.get() > 0) {
+                return;
+            }
+            if (mApplication != null) {
+                mApplication = null;
+            }
+            if (mTaskGraph != null) {
+                mTaskGraph = null;
+            }
+            mExecutor = null;
+            mIoExecutor = null;
+            mOtherProcessTasks = null;
+            mTaskLatches = null;
+            // mReleasedTasks 保留，超时后提前释放的任务可能仍在执行，awaitTasks 仍以是否释放判断
+            mNoDependencyQueue.clear();
+            mMainThreadQueue.clear();
         }
-        return true;
     }
 
     /**
-     * 释放资源
+     * 释放执行资源：关闭内部创建的执行器和看门狗线程，外部传入的执行器保留引用但不关闭
      */
-    private void releaseResources() {
+    private void releaseRunResources() {
         if (mHandler != null) {
             mHandler = null;
         }
-        if (mApplication != null) {
-            mApplication = null;
+        mIdleDispatcher = null;
+        if (mExecutor != null && mOwnExecutor) {
+            ((ExecutorService) mExecutor).shutdown();
+            mExecutor = null;
+        }
+        if (mIoExecutor != null && mOwnIoExecutor) {
+            ((ExecutorService) mIoExecutor).shutdown();
+            mIoExecutor = null;
+        }
+        if (mWatchdog != null) {
+            mWatchdog.shutdown();
+            mWatchdog = null;
+        }
+        mRunResourcesReleased = true;
+    }
+
+    /**
+     * 后台任务，在线程池排队时按任务优先级出队
+     */
+    private class TaskRunnable implements Runnable, Comparable<TaskRunnable> {
+        private final TaskEntity mEntity;
+
+        TaskRunnable(TaskEntity entity) {
+            this.mEntity = entity;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (!executeTask(mEntity)) {
+                    // 异步任务在完成信号中处理
+                    return;
+                }
+            } catch (Exception e) {
+                Log.i(IVictor.TAG, e.getMessage());
+            }
+            taskRunComplete(mEntity, true);
+            luncherTask();
+        }
+
+        @Override
+        public int compareTo(TaskRunnable o) {
+            return mEntity.compareTo(o.mEntity);
         }
-        if (mTaskRelationalTable != null) {
-            mTaskRelationalTable = null;
+    }
+
+    /**
+     * 异步任务的完成信号，只有第一次调用生效
+     */
+    private class AsyncTaskCompletion implements TaskCompletion {
+        private final TaskEntity mEntity;
+        private final TaskTrace mTrace;
+        private final TaskWatchdog mWatchdog;
+        private final AtomicBoolean mCompleted = new AtomicBoolean();
+
+        AsyncTaskCompletion(TaskEntity entity, TaskTrace trace, TaskWatchdog watchdog) {
+            this.mEntity = entity;
+            this.mTrace = trace;
+            this.mWatchdog = watchdog;
+        }
+
+        @Override
+        public void complete() {
+            if (!mCompleted.compareAndSet(false, true)) {
+                return;
+            }
+            if (mWatchdog != null) {
+                mWatchdog.unwatch(mEntity);
+            }
+            mTrace.onEnd(mEntity.id);
+            taskRunComplete(mEntity, true);
+            luncherTask();
         }
-        mNoDependencyQueue.clear();
     }
-}
\ No newline at end of file
+}
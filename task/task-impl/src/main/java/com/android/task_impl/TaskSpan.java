@@ -0,0 +1,56 @@
+package com.android.task_impl;
+
+/**
+ * ClassName: TaskSpan Description: 单个任务的执行耗时记录，时间均为相对启动开始的纳秒数 Date: 2026/10/18 15:40
+ */
+public class TaskSpan {
+    /** 任务名 */
+    public final String name;
+    /** 是否在后台线程执行 */
+    public final boolean background;
+    /** 执行任务的线程名 */
+    public final String threadName;
+    /** 执行任务的线程 id */
+    public final long threadId;
+    /** 依赖全部完成、进入就绪队列的时间 */
+    public final long readyTime;
+    /** 开始执行时间 */
+    public final long startTime;
+    /** 执行结束时间 */
+    public final long endTime;
+
+    TaskSpan(String name, boolean background, String threadName, long threadId, long readyTime, long startTime,
+             long endTime) {
+        this.name = name;
+        this.background = background;
+        this.threadName = threadName;
+        this.threadId = threadId;
+        this.readyTime = readyTime;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    /**
+     * @return 就绪后排队等待执行的时间
+     */
+    public long getQueueWait() {
+        return startTime - readyTime;
+    }
+
+    /**
+     * @return 执行耗时
+     */
+    public long getDuration() {
+        return endTime - startTime;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskSpan{" +
+                "name='" + name + '\'' +
+                ", thread='" + threadName + '\'' +
+                ", wait=" + getQueueWait() / 1000000 + "ms" +
+                ", duration=" + getDuration() / 1000000 + "ms" +
+                '}';
+    }
+}
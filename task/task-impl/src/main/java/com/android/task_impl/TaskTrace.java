@@ -0,0 +1,295 @@
+package com.android.task_impl;
+
+import android.os.Process;
+
+import com.android.task_annotation.TaskEntity;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ClassName: TaskTrace Description: 记录每个任务的就绪、开始、结束时间和执行线程，
+ * 可导出 Chrome trace-event JSON（Perfetto 可直接打开）并计算实际的关键路径 Date: 2026/10/18 15:40
+ */
+public class TaskTrace {
+    private static final String CHARSET = "UTF-8";
+
+    /** 任务图，用于查找任务名 */
+    private final TaskGraph mGraph;
+    /** 启动开始时间 */
+    private final long mStartNanos;
+    /** 就绪时间和最后解除依赖的任务按任务 id 存放，每个位置只由使该任务就绪的线程写入 */
+    private final long[] mTaskReady;
+    private final int[] mReleasedBy;
+    /** 以下数组按任务 id 存放，每个位置只由执行该任务的线程写入 */
+    private final long[] mTaskStart;
+    private final long[] mTaskEnd;
+    private final String[] mThreadName;
+    private final long[] mThreadId;
+    /** 不属于当前进程、未执行的任务 */
+    private final boolean[] mSkipped;
+    /** 线程阻塞等待任务完成的记录，可能在多个线程写入 */
+    private final List<TaskSpan> mAwaitSpans = Collections.synchronizedList(new ArrayList<TaskSpan>());
+
+    TaskTrace(TaskGraph graph) {
+        int size = graph.size();
+        this.mGraph = graph;
+        this.mStartNanos = System.nanoTime();
+        this.mTaskReady = new long[size];
+        this.mReleasedBy = new int[size];
+        Arrays.fill(mReleasedBy, -1);
+        this.mTaskStart = new long[size];
+        this.mTaskEnd = new long[size];
+        this.mThreadName = new String[size];
+        this.mThreadId = new long[size];
+        this.mSkipped = new boolean[size];
+    }
+
+    /**
+     * 任务就绪，入队之前在使它就绪的线程调用：最后一个依赖任务完成或超时后提前释放、懒加载任务被请求、启动时没有依赖
+     *
+     * @param id         任务 id
+     * @param releasedBy 最后解除依赖的任务 id，没有时为 -1
+     */
+    void onReady(int id, int releasedBy) {
+        mTaskReady[id] = System.nanoTime() - mStartNanos;
+        mReleasedBy[id] = releasedBy;
+    }
+
+    /**
+     * 任务开始执行，在执行任务的线程调用
+     */
+    void onStart(int id) {
+        Thread thread = Thread.currentThread();
+        mThreadName[id] = thread.getName();
+        mThreadId[id] = thread.getId();
+        mTaskStart[id] = System.nanoTime() - mStartNanos;
+    }
+
+    /**
+     * 任务执行结束，在执行任务的线程调用，异步任务在调用完成信号的线程调用
+     */
+    void onEnd(int id) {
+        mTaskEnd[id] = System.nanoTime() - mStartNanos;
+    }
+
+    /**
+     * 任务不属于当前进程，未执行直接完成
+     */
+    void onSkip(int id) {
+        mSkipped[id] = true;
+        mTaskStart[id] = mTaskEnd[id] = System.nanoTime() - mStartNanos;
+    }
+
+    /**
+     * 记录一次阻塞等待，在等待的线程调用
+     *
+     * @param label      等待的任务
+     * @param beginNanos 开始等待的 {@link System#nanoTime()}
+     * @param endNanos   结束等待的 {@link System#nanoTime()}
+     */
+    void onAwait(String label, long beginNanos, long endNanos) {
+        Thread thread = Thread.currentThread();
+        long begin = beginNanos - mStartNanos;
+        mAwaitSpans.add(new TaskSpan(label, false, thread.getName(), thread.getId(), begin, begin,
+                endNanos - mStartNanos));
+    }
+
+    /**
+     * @return 任务是否已在当前进程执行结束，跳过、尚未请求的懒加载任务和尚未结束的任务（超时后提前释放仍在执行）返回 false
+     */
+    private boolean isFinished(int id) {
+        return !mSkipped[id] && mThreadName[id] != null && mTaskEnd[id] != 0;
+    }
+
+    /**
+     * 获取所有已执行结束的任务的耗时记录，需在全部任务完成后调用。超时后提前释放、仍在执行的任务没有结束时间，不包含在内
+     *
+     * @return 按任务 id 排列的耗时记录
+     */
+    public List<TaskSpan> getSpans() {
+        int size = mGraph.size();
+        List<TaskSpan> spans = new ArrayList<>(size);
+        for (int id = 0; id < size; id++) {
+            if (isFinished(id)) {
+                spans.add(newSpan(id));
+            }
+        }
+        return spans;
+    }
+
+    private TaskSpan newSpan(int id) {
+        TaskEntity entity = mGraph.get(id);
+        return new TaskSpan(entity.name, entity.background, mThreadName[id], mThreadId[id], mTaskReady[id],
+                mTaskStart[id], mTaskEnd[id]);
+    }
+
+    /**
+     * 获取线程阻塞等待任务完成的记录，{@link TaskSpan#getDuration()} 即阻塞时长
+     *
+     * @return 按等待开始的先后排列
+     */
+    public List<TaskSpan> getAwaitSpans() {
+        synchronized (mAwaitSpans) {
+            return new ArrayList<>(mAwaitSpans);
+        }
+    }
+
+    /**
+     * 实际的关键路径：从最后结束的任务开始，沿“最后解除依赖的任务”回溯到没有依赖或由请求就绪的任务
+     *
+     * @return 关键路径上的任务，按执行顺序排列
+     */
+    public List<TaskSpan> getCriticalPath() {
+        int size = mGraph.size();
+        int last = -1;
+        for (int id = 0; id < size; id++) {
+            if (last == -1 || mTaskEnd[id] > mTaskEnd[last]) {
+                last = id;
+            }
+        }
+        ArrayList<TaskSpan> path = new ArrayList<>();
+        for (int id = last; id != -1; id = mReleasedBy[id]) {
+            if (isFinished(id)) {
+                path.add(0, newSpan(id));
+            }
+        }
+        return path;
+    }
+
+    /**
+     * @return 关键路径摘要，每个任务一行
+     */
+    public String getCriticalPathReport() {
+        List<TaskSpan> path = getCriticalPath();
+        long total = path.isEmpty() ? 0 : path.get(path.size() - 1).endTime;
+        long wait = 0;
+        long run = 0;
+        StringBuilder sb = new StringBuilder();
+        for (TaskSpan span : path) {
+            wait += span.getQueueWait();
+            run += span.getDuration();
+            sb.append("\n  ").append(span.name)
+                    .append(" [").append(span.threadName).append(']')
+                    .append(" 等待 ").append(toMillis(span.getQueueWait())).append("ms")
+                    .append(" 执行 ").append(toMillis(span.getDuration())).append("ms");
+        }
+        return "启动任务关键路径：总耗时 " + toMillis(total) + "ms，执行 " + toMillis(run) + "ms，排队 "
+                + toMillis(wait) + "ms，共 " + path.size() + " 个任务" + sb;
+    }
+
+    /**
+     * 导出 Chrome trace-event JSON，可在 Perfetto 或 chrome://tracing 中打开
+     *
+     * @return JSON 字符串
+     */
+    public String toChromeTraceJson() {
+        int size = mGraph.size();
+        boolean[] critical = new boolean[size];
+        for (TaskSpan span : getCriticalPath()) {
+            critical[mGraph.indexOf(span.name)] = true;
+        }
+        int pid = Process.myPid();
+        StringBuilder sb = new StringBuilder("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        Map<Long, String> threads = new HashMap<>();
+        boolean first = true;
+        for (int id = 0; id < size; id++) {
+            if (!isFinished(id)) {
+                continue;
+            }
+            threads.put(mThreadId[id], mThreadName[id]);
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            sb.append("{\"name\":");
+            appendJsonString(sb, mGraph.get(id).name);
+            sb.append(",\"cat\":\"victor\",\"ph\":\"X\"")
+                    .append(",\"ts\":").append(toMicros(mTaskStart[id]))
+                    .append(",\"dur\":").append(toMicros(mTaskEnd[id] - mTaskStart[id]))
+                    .append(",\"pid\":").append(pid)
+                    .append(",\"tid\":").append(mThreadId[id])
+                    .append(",\"args\":{\"ready_us\":").append(toMicros(mTaskReady[id]))
+                    .append(",\"queue_wait_us\":").append(toMicros(mTaskStart[id] - mTaskReady[id]))
+                    .append(",\"critical\":").append(critical[id]);
+            if (mReleasedBy[id] != -1) {
+                sb.append(",\"released_by\":");
+                appendJsonString(sb, mGraph.get(mReleasedBy[id]).name);
+            }
+            sb.append("}}");
+        }
+        for (TaskSpan span : getAwaitSpans()) {
+            threads.put(span.threadId, span.threadName);
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            sb.append("{\"name\":");
+            appendJsonString(sb, span.name);
+            sb.append(",\"cat\":\"await\",\"ph\":\"X\"")
+                    .append(",\"ts\":").append(toMicros(span.startTime))
+                    .append(",\"dur\":").append(toMicros(span.getDuration()))
+                    .append(",\"pid\":").append(pid)
+                    .append(",\"tid\":").append(span.threadId)
+                    .append('}');
+        }
+        for (Map.Entry<Long, String> thread : threads.entrySet()) {
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            sb.append("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":").append(pid)
+                    .append(",\"tid\":").append(thread.getKey())
+                    .append(",\"args\":{\"name\":");
+            appendJsonString(sb, thread.getValue());
+            sb.append("}}");
+        }
+        return sb.append("]}").toString();
+    }
+
+    /**
+     * 将 Chrome trace-event JSON 写入文件，涉及 IO，请勿在主线程调用
+     *
+     * @param file 目标文件
+     */
+    public void writeChromeTrace(File file) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), CHARSET);
+        try {
+            writer.write(toChromeTraceJson());
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static void appendJsonString(StringBuilder sb, String value) {
+        sb.append('"');
+        for (int i = 0, length = value == null ? 0 : value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    private static long toMicros(long nanos) {
+        return nanos / 1000;
+    }
+
+    private static long toMillis(long nanos) {
+        return nanos / 1000000;
+    }
+}
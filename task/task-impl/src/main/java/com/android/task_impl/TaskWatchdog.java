@@ -0,0 +1,127 @@
+package com.android.task_impl;
+
+import com.android.task_annotation.TaskEntity;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import androidx.annotation.NonNull;
+
+/**
+ * ClassName: TaskWatchdog Description: 任务看门狗，任务开始执行时按 timeout 定时，
+ * 到期时任务仍未结束则采样执行线程的调用栈并回调。只在存在设置了 timeout 的任务时创建 Date: 2026/10/18 18:40
+ */
+final class TaskWatchdog {
+
+    /**
+     * 超时回调
+     */
+    interface Callback {
+        /**
+         * 任务超时，在看门狗线程回调
+         *
+         * @param entity     任务
+         * @param thread     执行任务的线程
+         * @param stackTrace 执行任务的线程当前的调用栈
+         */
+        void onTimeout(TaskEntity entity, Thread thread, StackTraceElement[] stackTrace);
+    }
+
+    private final ScheduledThreadPoolExecutor mScheduler;
+    private final Callback mCallback;
+    /** 按任务 id 存放的超时检查，任务结束时移除 */
+    private final AtomicReferenceArray<Check> mChecks;
+
+    TaskWatchdog(int taskCount, Callback callback) {
+        this.mCallback = callback;
+        this.mChecks = new AtomicReferenceArray<>(taskCount);
+        this.mScheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull Runnable r) {
+                Thread thread = new Thread(r, "victor-task-watchdog");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        mScheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * 任务开始执行，在执行任务的线程调用
+     *
+     * @param entity 任务，timeout 不大于 0 时不检查
+     */
+    void watch(TaskEntity entity) {
+        if (entity.timeout <= 0) {
+            return;
+        }
+        Check check = new Check(entity, Thread.currentThread());
+        // 先登记再定时，检查到期时不会因尚未登记而漏报
+        mChecks.set(entity.id, check);
+        check.mFuture = mScheduler.schedule(check, entity.timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 任务执行结束，取消超时检查
+     *
+     * @param entity 任务
+     */
+    void unwatch(TaskEntity entity) {
+        if (entity.timeout <= 0) {
+            return;
+        }
+        Check check = mChecks.getAndSet(entity.id, null);
+        if (check != null && check.mFuture != null) {
+            check.mFuture.cancel(false);
+        }
+    }
+
+    /**
+     * 在当前线程（看门狗线程）把异常交给执行任务的线程的异常处理，崩溃信息中是卡住的调用栈；
+     * 线程已结束（异步任务）时交给默认异常处理。执行任务的线程不会被中断，应用是否退出由异常处理决定
+     *
+     * @param thread 执行任务的线程
+     * @param error  超时异常
+     */
+    static void dispatchUncaughtException(Thread thread, Throwable error) {
+        Thread.UncaughtExceptionHandler handler = thread.getUncaughtExceptionHandler();
+        if (handler == null) {
+            handler = Thread.getDefaultUncaughtExceptionHandler();
+        }
+        if (handler != null) {
+            handler.uncaughtException(thread, error);
+        }
+    }
+
+    /**
+     * 关闭看门狗线程，尚未到期的检查不再执行
+     */
+    void shutdown() {
+        mScheduler.shutdownNow();
+    }
+
+    /**
+     * 单个任务的超时检查
+     */
+    private class Check implements Runnable {
+        private final TaskEntity mEntity;
+        private final Thread mThread;
+        private volatile ScheduledFuture<?> mFuture;
+
+        Check(TaskEntity entity, Thread thread) {
+            this.mEntity = entity;
+            this.mThread = thread;
+        }
+
+        @Override
+        public void run() {
+            // 任务已结束时检查已被移除
+            if (mChecks.compareAndSet(mEntity.id, this, null)) {
+                mCallback.onTimeout(mEntity, mThread, mThread.getStackTrace());
+            }
+        }
+    }
+}
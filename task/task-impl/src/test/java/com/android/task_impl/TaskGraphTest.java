@@ -0,0 +1,238 @@
+package com.android.task_impl;
+
+import com.android.task_annotation.TaskEntity;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * ClassName: TaskGraphTest Description: TaskGraph 的构建、拓扑排序、并发解除依赖和懒加载任务的延迟与请求 Date: 2026/10/18 21:00
+ */
+public class TaskGraphTest {
+
+    @Test
+    public void buildIgnoresUnknownDependencies() {
+        TaskGraph graph = TaskGraph.build(tasks(
+                task("A"),
+                task("B", "A", "Missing"),
+                task("C", "Missing")));
+
+        assertEquals(3, graph.size());
+        assertEquals(0, graph.inDegree(0));
+        assertEquals(1, graph.inDegree(1));
+        assertEquals(0, graph.inDegree(2));
+        assertArrayEquals(new int[]{1}, dependents(graph, 0));
+        assertArrayEquals(new int[0], dependents(graph, 2));
+        assertEquals(1, graph.indexOf("B"));
+        assertEquals(-1, graph.indexOf("Missing"));
+        assertEquals(1, graph.get(1).id);
+    }
+
+    @Test
+    public void topologicalOrderOfDag() {
+        TaskGraph graph = TaskGraph.build(tasks(
+                task("D", "B", "C"),
+                task("B", "A"),
+                task("C", "A"),
+                task("A")));
+
+        int[] order = graph.topologicalOrder();
+        assertNotNull(order);
+        int[] position = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            position[order[i]] = i;
+        }
+        for (int id = 0; id < graph.size(); id++) {
+            for (int child : dependents(graph, id)) {
+                assertTrue(position[id] < position[child]);
+            }
+        }
+        // 拓扑排序不改变入度
+        assertEquals(2, graph.inDegree(0));
+    }
+
+    @Test
+    public void topologicalOrderReturnsNullOnCycle() {
+        TaskGraph graph = TaskGraph.build(tasks(
+                task("A"),
+                task("B", "A", "D"),
+                task("C", "B"),
+                task("D", "C")));
+
+        assertNull(graph.topologicalOrder());
+    }
+
+    @Test
+    public void concurrentReleaseEnqueuesEachChildOnce() throws InterruptedException {
+        final int parents = 8;
+        final int children = 64;
+        for (int round = 0; round < 200; round++) {
+            ArrayList<TaskEntity> list = new ArrayList<>();
+            String[] parentNames = new String[parents];
+            for (int i = 0; i < parents; i++) {
+                parentNames[i] = "P" + i;
+                list.add(task(parentNames[i]));
+            }
+            for (int i = 0; i < children; i++) {
+                list.add(task("C" + i, parentNames));
+            }
+            final TaskGraph graph = TaskGraph.build(list);
+            final Queue<TaskEntity> queue = new ConcurrentLinkedQueue<>();
+            final CountDownLatch start = new CountDownLatch(1);
+            Thread[] threads = new Thread[parents];
+            for (int i = 0; i < parents; i++) {
+                final int parent = i;
+                threads[i] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            start.await();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        graph.release(parent, queue);
+                    }
+                });
+                threads[i].start();
+            }
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertEquals(children, queue.size());
+            Set<String> names = new HashSet<>();
+            for (TaskEntity entity : queue) {
+                assertTrue(names.add(entity.name));
+            }
+        }
+    }
+
+    @Test
+    public void lazyTasksAreDeferredUntilRequested() {
+        // LA <- LB（均为懒加载，无人依赖）；LC <- E（LC 被非懒加载任务依赖，启动时执行）
+        TaskGraph graph = TaskGraph.build(tasks(
+                lazyTask("LA"),
+                lazyTask("LB", "LA"),
+                lazyTask("LC"),
+                task("E", "LC")));
+        int[] order = graph.topologicalOrder();
+
+        assertEquals(2, graph.deferLazyTasks(order));
+        assertTrue(graph.isDeferred(0));
+        assertTrue(graph.isDeferred(1));
+        assertFalse(graph.isDeferred(2));
+        assertFalse(graph.isDeferred(3));
+
+        Queue<TaskEntity> queue = new ArrayDeque<>();
+        AtomicInteger pending = new AtomicInteger();
+        // 请求 LB 时连同尚未请求的祖先 LA 一起请求，LA 没有依赖直接入队
+        assertEquals(2, graph.request(1, queue, pending));
+        assertEquals(2, pending.get());
+        assertEquals(1, queue.size());
+        assertEquals("LA", queue.poll().name);
+        // 重复请求不再生效
+        assertEquals(0, graph.request(1, queue, pending));
+        assertEquals(0, graph.request(0, queue, pending));
+        assertEquals(2, pending.get());
+        assertTrue(queue.isEmpty());
+        // LA 完成后 LB 入队
+        graph.release(0, queue);
+        assertEquals("LB", queue.poll().name);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void requestedLazyTaskWaitsForUnfinishedDependencies() {
+        TaskGraph graph = TaskGraph.build(tasks(
+                task("A"),
+                lazyTask("L", "A")));
+        assertEquals(1, graph.deferLazyTasks(graph.topologicalOrder()));
+
+        Queue<TaskEntity> queue = new ArrayDeque<>();
+        // A 完成时 L 尚未被请求，不入队
+        graph.release(0, queue);
+        assertTrue(queue.isEmpty());
+        assertEquals(1, graph.request(1, queue, new AtomicInteger()));
+        assertEquals("L", queue.poll().name);
+    }
+
+    @Test
+    public void readyListenerReportsWhoReleasedEachTask() {
+        TaskGraph graph = TaskGraph.build(tasks(
+                task("A"),
+                task("B", "A"),
+                lazyTask("L", "A")));
+        graph.deferLazyTasks(graph.topologicalOrder());
+        final List<int[]> ready = new ArrayList<>();
+        graph.setReadyListener(new TaskGraph.ReadyListener() {
+            @Override
+            public void onReady(int id, int releasedBy) {
+                ready.add(new int[]{id, releasedBy});
+            }
+        });
+
+        Queue<TaskEntity> queue = new ArrayDeque<>();
+        graph.release(0, queue);
+        graph.request(2, queue, new AtomicInteger());
+
+        assertEquals(2, ready.size());
+        assertArrayEquals(new int[]{1, 0}, ready.get(0));
+        // 懒加载任务在请求时就绪，不是由依赖任务解除
+        assertArrayEquals(new int[]{2, -1}, ready.get(1));
+    }
+
+    @Test
+    public void criticalPathIsLongestPathToSink() {
+        TaskGraph graph = TaskGraph.build(tasks(
+                task("A"),
+                task("B", "A"),
+                task("C", "A"),
+                task("D", "B", "C")));
+        graph.computeCriticalPath(graph.topologicalOrder(), new long[]{1, 5, 2, 3});
+
+        assertEquals(9, graph.get(0).criticalPath);
+        assertEquals(8, graph.get(1).criticalPath);
+        assertEquals(5, graph.get(2).criticalPath);
+        assertEquals(3, graph.get(3).criticalPath);
+    }
+
+    private static ArrayList<TaskEntity> tasks(TaskEntity... entities) {
+        ArrayList<TaskEntity> list = new ArrayList<>();
+        for (TaskEntity entity : entities) {
+            list.add(entity);
+        }
+        return list;
+    }
+
+    private static TaskEntity task(String name, String... depends) {
+        return new TaskEntity.Builder(name).depends(depends).build();
+    }
+
+    private static TaskEntity lazyTask(String name, String... depends) {
+        return new TaskEntity.Builder(name).lazy(true).depends(depends).build();
+    }
+
+    private static int[] dependents(TaskGraph graph, int id) {
+        int[] result = new int[graph.dependentsEnd(id) - graph.dependentsStart(id)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = graph.dependent(graph.dependentsStart(id) + i);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,104 @@
+package com.android.task_impl;
+
+import android.content.Context;
+
+import com.android.task_annotation.ITaskConstant;
+import com.android.task_annotation.TaskEntity;
+import com.android.task_interf.IRunTask;
+import com.android.task_interf.RunTaskListener;
+
+import org.junit.Test;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * ClassName: TaskRegisterManagerTest Description: TaskRegisterManager 在任务图释放前后对任务是否完成的判断
+ */
+public class TaskRegisterManagerTest {
+
+    @Test
+    public void timeoutReleasedTaskIsFinishedBeforeAndAfterResourcesAreReleased() throws Exception {
+        final CountDownLatch slowFinish = new CountDownLatch(1);
+        final CountDownLatch holdFinish = new CountDownLatch(1);
+        TaskRegisterManager manager = newManager();
+        TaskEntity slow = new TaskEntity.Builder("Slow").process()
+                .timeout(50, ITaskConstant.TIMEOUT_POLICY_RELEASE).task(new BlockingTask(slowFinish)).build();
+        manager.getTaskList().add(slow);
+        // Hold 未完成时任务图不会释放
+        manager.getTaskList().add(new TaskEntity.Builder("Hold").process().task(new BlockingTask(holdFinish)).build());
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            manager.start(null, new EmptyListener(), executor);
+
+            assertTrue(manager.awaitTask("Slow", 5, TimeUnit.SECONDS));
+            assertFalse(slow.executed);
+
+            holdFinish.countDown();
+            assertTrue(manager.awaitTask("Hold", 5, TimeUnit.SECONDS));
+            awaitGraphReleased(manager);
+
+            // Slow 仍在执行，任务图释放后的判断与释放前一致
+            assertFalse(slow.executed);
+            assertTrue(manager.awaitTask("Slow", 0, TimeUnit.MILLISECONDS));
+            assertFalse(manager.awaitTask("Missing", 0, TimeUnit.MILLISECONDS));
+        } finally {
+            slowFinish.countDown();
+            holdFinish.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * TaskRegisterManager 是单例，每个测试创建新的实例
+     */
+    private static TaskRegisterManager newManager() throws Exception {
+        Constructor<TaskRegisterManager> constructor = TaskRegisterManager.class.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        return constructor.newInstance();
+    }
+
+    private static void awaitGraphReleased(TaskRegisterManager manager) throws Exception {
+        Field graph = TaskRegisterManager.class.getDeclaredField("mTaskGraph");
+        graph.setAccessible(true);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (graph.get(manager) != null) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static class BlockingTask implements IRunTask {
+        private final CountDownLatch mFinish;
+
+        BlockingTask(CountDownLatch finish) {
+            this.mFinish = finish;
+        }
+
+        @Override
+        public void execute(Context context) {
+            try {
+                mFinish.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class EmptyListener implements RunTaskListener {
+        @Override
+        public void onSingleComplete(TaskEntity task) {
+        }
+
+        @Override
+        public void onAllComplete() {
+        }
+    }
+}
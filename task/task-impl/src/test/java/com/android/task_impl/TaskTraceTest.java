@@ -0,0 +1,159 @@
+package com.android.task_impl;
+
+import com.android.task_annotation.TaskEntity;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * ClassName: TaskTraceTest Description: TaskTrace 在任务入队时记录的就绪时间和据此回溯的关键路径
+ */
+public class TaskTraceTest {
+
+    @Test
+    public void dependentReleasedBeforeParentEndsIsReadyAtRelease() throws InterruptedException {
+        TaskGraph graph = TaskGraph.build(tasks(
+                task("A"),
+                task("B", "A")));
+        TaskTrace trace = newTrace(graph);
+        Queue<TaskEntity> queue = new ArrayDeque<>();
+
+        trace.onReady(0, -1);
+        trace.onStart(0);
+        // A 超时后提前释放 B，A 仍在执行
+        graph.release(0, queue);
+        trace.onStart(1);
+        trace.onEnd(1);
+        Thread.sleep(5);
+        trace.onEnd(0);
+
+        TaskSpan a = span(trace.getSpans(), "A");
+        TaskSpan b = span(trace.getSpans(), "B");
+        assertTrue(b.readyTime < a.endTime);
+        assertTrue(b.getQueueWait() >= 0);
+    }
+
+    @Test
+    public void startedButUnfinishedTaskIsLeftOutOfSpans() {
+        TaskGraph graph = TaskGraph.build(tasks(
+                task("A"),
+                task("B", "A")));
+        TaskTrace trace = newTrace(graph);
+        Queue<TaskEntity> queue = new ArrayDeque<>();
+
+        trace.onReady(0, -1);
+        trace.onStart(0);
+        // A 超时后提前释放 B，B 完成时 A 仍在执行，没有结束时间
+        graph.release(0, queue);
+        trace.onStart(1);
+        trace.onEnd(1);
+
+        List<TaskSpan> spans = trace.getSpans();
+        assertEquals(1, spans.size());
+        assertEquals("B", spans.get(0).name);
+        assertTrue(spans.get(0).getDuration() >= 0);
+        List<TaskSpan> path = trace.getCriticalPath();
+        assertEquals(1, path.size());
+        assertEquals("B", path.get(0).name);
+        assertFalse(trace.toChromeTraceJson().contains("\"name\":\"A\""));
+    }
+
+    @Test
+    public void lazyTaskIsReadyWhenRequested() throws InterruptedException {
+        TaskGraph graph = TaskGraph.build(tasks(
+                task("A"),
+                lazyTask("L", "A")));
+        graph.deferLazyTasks(graph.topologicalOrder());
+        TaskTrace trace = newTrace(graph);
+        Queue<TaskEntity> queue = new ArrayDeque<>();
+
+        trace.onReady(0, -1);
+        trace.onStart(0);
+        trace.onEnd(0);
+        graph.release(0, queue);
+        Thread.sleep(5);
+        graph.request(1, queue, new AtomicInteger());
+        trace.onStart(1);
+        trace.onEnd(1);
+
+        TaskSpan a = span(trace.getSpans(), "A");
+        TaskSpan l = span(trace.getSpans(), "L");
+        assertTrue(l.readyTime > a.endTime);
+        assertTrue(l.getQueueWait() >= 0);
+        // L 由请求就绪，关键路径不再回溯到 A
+        List<TaskSpan> path = trace.getCriticalPath();
+        assertEquals(1, path.size());
+        assertEquals("L", path.get(0).name);
+    }
+
+    @Test
+    public void criticalPathSkipsTasksOfOtherProcesses() {
+        TaskGraph graph = TaskGraph.build(tasks(
+                task("A"),
+                task("S", "A"),
+                task("B", "S")));
+        TaskTrace trace = newTrace(graph);
+        Queue<TaskEntity> queue = new ArrayDeque<>();
+
+        trace.onReady(0, -1);
+        trace.onStart(0);
+        trace.onEnd(0);
+        graph.release(0, queue);
+        // S 不属于当前进程，出队后直接完成
+        trace.onSkip(1);
+        graph.release(1, queue);
+        trace.onStart(2);
+        trace.onEnd(2);
+
+        List<TaskSpan> path = trace.getCriticalPath();
+        assertEquals(2, path.size());
+        assertEquals("A", path.get(0).name);
+        assertEquals("B", path.get(1).name);
+        assertTrue(span(trace.getSpans(), "B").readyTime >= span(trace.getSpans(), "A").endTime);
+    }
+
+    private static TaskTrace newTrace(TaskGraph graph) {
+        final TaskTrace trace = new TaskTrace(graph);
+        graph.setReadyListener(new TaskGraph.ReadyListener() {
+            @Override
+            public void onReady(int id, int releasedBy) {
+                trace.onReady(id, releasedBy);
+            }
+        });
+        return trace;
+    }
+
+    private static TaskSpan span(List<TaskSpan> spans, String name) {
+        for (TaskSpan span : spans) {
+            if (span.name.equals(name)) {
+                return span;
+            }
+        }
+        throw new AssertionError("no span for " + name);
+    }
+
+    private static ArrayList<TaskEntity> tasks(TaskEntity... entities) {
+        ArrayList<TaskEntity> list = new ArrayList<>();
+        for (TaskEntity entity : entities) {
+            list.add(entity);
+        }
+        return list;
+    }
+
+    private static TaskEntity task(String name, String... depends) {
+        return new TaskEntity.Builder(name).depends(depends).build();
+    }
+
+    private static TaskEntity lazyTask(String name, String... depends) {
+        return new TaskEntity.Builder(name).lazy(true).depends(depends).build();
+    }
+}
@@ -0,0 +1,103 @@
+package com.android.task_impl;
+
+import com.android.task_annotation.ITaskConstant;
+import com.android.task_annotation.TaskEntity;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * ClassName: TaskWatchdogTest Description: TaskWatchdog 的超时回调和 TIMEOUT_POLICY_FAIL 的异常分发
+ */
+public class TaskWatchdogTest {
+
+    @Test
+    public void timeoutFailureGoesToWorkerHandlerOnWatchdogThread() throws Exception {
+        final CountDownLatch finish = new CountDownLatch(1);
+        final CountDownLatch handled = new CountDownLatch(1);
+        final AtomicReference<Thread> handlerCaller = new AtomicReference<>();
+        final AtomicReference<Throwable> handledError = new AtomicReference<>();
+        final AtomicReference<Thread> reportedThread = new AtomicReference<>();
+        final RuntimeException error = new RuntimeException("timeout");
+        final TaskEntity entity = new TaskEntity.Builder("Hung").timeout(50, ITaskConstant.TIMEOUT_POLICY_FAIL).build();
+        entity.id = 0;
+
+        final TaskWatchdog watchdog = new TaskWatchdog(1, new TaskWatchdog.Callback() {
+            @Override
+            public void onTimeout(TaskEntity timedOut, Thread thread, StackTraceElement[] stackTrace) {
+                reportedThread.set(thread);
+                TaskWatchdog.dispatchUncaughtException(thread, error);
+            }
+        });
+        Thread worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watchdog.watch(entity);
+                try {
+                    finish.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                watchdog.unwatch(entity);
+            }
+        }, "worker");
+        worker.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread t, Throwable e) {
+                handlerCaller.set(Thread.currentThread());
+                handledError.set(e);
+                handled.countDown();
+            }
+        });
+        worker.start();
+        try {
+            assertTrue(handled.await(5, TimeUnit.SECONDS));
+            assertSame(worker, reportedThread.get());
+            assertSame(error, handledError.get());
+            // 异常在看门狗线程分发，执行任务的线程没有被中断，仍在执行任务
+            assertNotNull(handlerCaller.get());
+            assertEquals("victor-task-watchdog", handlerCaller.get().getName());
+            assertTrue(worker.isAlive());
+            assertFalse(worker.isInterrupted());
+        } finally {
+            finish.countDown();
+            worker.join(5000);
+            watchdog.shutdown();
+        }
+    }
+
+    @Test
+    public void timeoutFailureOfFinishedThreadGoesToDefaultHandler() throws Exception {
+        Thread finished = new Thread(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+        finished.start();
+        finished.join();
+        final AtomicReference<Throwable> handledError = new AtomicReference<>();
+        Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread t, Throwable e) {
+                handledError.set(e);
+            }
+        });
+        try {
+            RuntimeException error = new RuntimeException("timeout");
+            TaskWatchdog.dispatchUncaughtException(finished, error);
+            assertSame(error, handledError.get());
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(previous);
+        }
+    }
+}
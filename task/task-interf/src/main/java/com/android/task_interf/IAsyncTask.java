@@ -0,0 +1,20 @@
+package com.android.task_interf;
+
+import android.content.Context;
+
+import com.android.task_annotation.ITask;
+
+/**
+ * ClassName: IAsyncTask Description: 异步任务的接口定义，execute 返回后任务并未完成，
+ * 调用 completion 之后才释放依赖它的任务，等待期间不占用线程 Date: 2026/10/18 19:10
+ */
+public interface IAsyncTask extends ITask {
+    /**
+     * 发起任务，在 background 决定的线程调用。完成后在任意线程调用 {@link TaskCompletion#complete()}，
+     * execute 抛出异常时视为完成
+     *
+     * @param context    执行任务的上下文
+     * @param completion 完成信号
+     */
+    void execute(Context context, TaskCompletion completion);
+}
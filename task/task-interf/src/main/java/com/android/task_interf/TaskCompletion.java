@@ -0,0 +1,11 @@
+package com.android.task_interf;
+
+/**
+ * ClassName: TaskCompletion Description: 异步任务的完成信号 Date: 2026/10/18 19:10
+ */
+public interface TaskCompletion {
+    /**
+     * 任务完成，可在任意线程调用，重复调用时忽略
+     */
+    void complete();
+}
@@ -18,6 +18,11 @@ import androidx.annotation.Nullable;
  * ClassName: TaskProcessUtil Description: 进程工具类 Author: wudi41 Date: 2022/9/2 14:38
  */
 public class TaskProcessUtil {
+    /** 编译期进程分组之间的分隔符，与插件一致 */
+    private static final String PROCESS_GROUP_SEPARATOR = ";";
+    /** 同一分组内进程之间的分隔符 */
+    private static final String PROCESS_SEPARATOR = ",";
+
     private static String currentProcessName;
 
     /**
@@ -27,21 +32,59 @@ public class TaskProcessUtil {
      * @return true 符合  false 不符合
      */
     public static boolean checkTaskProcess(@NonNull Context context, TaskEntity task) {
-        String[] process = task.process;
+        return checkProcess(context, task.process);
+    }
+
+    /**
+     * 检查当前进程是否符合进程声明，满足任意一个即符合
+     * @param context 上下文
+     * @param process 进程声明，为空时表示所有进程
+     * @return true 符合  false 不符合
+     */
+    public static boolean checkProcess(@NonNull Context context, String[] process) {
         if (process == null || process.length == 0) {
             return true;
         }
+        String packageName = context.getApplicationContext().getPackageName();
+        String current = getCurrentProcessName(context);
         for (String p : process) {
-            if (Objects.equals(p, ITaskConstant.PROCESS_MAIN)) {
-                return context.getApplicationContext().getPackageName().equals
-                        (getCurrentProcessName(context));
-            } else {
-                return Objects.equals(getCurrentProcessName(context), p);
+            if (matchProcess(packageName, current, p)) {
+                return true;
             }
         }
         return false;
     }
 
+    private static boolean matchProcess(String packageName, String current, String process) {
+        if (ITaskConstant.PROCESS_ALL.equals(process)) {
+            return true;
+        }
+        if (ITaskConstant.PROCESS_MAIN.equals(process)) {
+            return packageName.equals(current);
+        }
+        if (ITaskConstant.PROCESS_OTHER.equals(process)) {
+            return current != null && !packageName.equals(current);
+        }
+        if (process.startsWith(":")) {
+            return Objects.equals(current, packageName + process);
+        }
+        return Objects.equals(current, process);
+    }
+
+    /**
+     * 解码插件写入的进程分组
+     * @param encoded 分组之间以 ; 分隔，组内进程以 , 分隔
+     * @return 进程分组
+     */
+    public static String[][] parseProcessGroups(String encoded) {
+        String[] groups = encoded.split(PROCESS_GROUP_SEPARATOR, -1);
+        String[][] result = new String[groups.length][];
+        for (int i = 0; i < groups.length; i++) {
+            result[i] = groups[i].isEmpty() ? new String[0] : groups[i].split(PROCESS_SEPARATOR);
+        }
+        return result;
+    }
+
     /**
      * @return 当前进程名
      */
@@ -0,0 +1,17 @@
+package com.android.task_interf;
+
+import com.android.task_annotation.TaskEntity;
+
+/**
+ * ClassName: TaskTimeoutListener Description: 任务执行超时监听 Date: 2026/10/18 18:40
+ */
+public interface TaskTimeoutListener {
+    /**
+     * 任务执行时间超过 timeout，在看门狗线程回调，回调之后按任务的 timeoutPolicy 处理
+     *
+     * @param task       超时的任务
+     * @param thread     执行任务的线程，异步任务为调用 execute 的线程
+     * @param stackTrace 超时时该线程的调用栈
+     */
+    void onTaskTimeout(TaskEntity task, Thread thread, StackTraceElement[] stackTrace);
+}
@@ -0,0 +1,479 @@
+package com.android.task_simulator;
+
+import com.android.task_annotation.ITaskConstant;
+import com.android.task_annotation.TaskEntity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * ClassName: StartupSimulation Description: 离散事件模拟一次启动：与运行时相同，就绪任务按关键路径长度和优先级出队
+ * （TaskEntity.compareTo），后台任务在 CPU 线程或 IO 线程执行，主线程任务在主线程执行，空闲任务在主线程没有其他任务时执行。
+ * 懒加载任务与运行时一样只在被启动任务依赖时执行，不属于模拟进程的任务就绪后直接完成。
+ * 假设线程之间不争抢 CPU，也不计调度本身的开销 Date: 2026/10/18 20:10
+ */
+final class StartupSimulation {
+    /** 主线程 */
+    private static final int POOL_MAIN = 0;
+    /** CPU 线程池 */
+    private static final int POOL_CPU = 1;
+    /** IO 线程池 */
+    private static final int POOL_IO = 2;
+
+    private final ArrayList<TaskEntity> mTasks;
+    /** 按任务 id 排列的耗时（微秒） */
+    private final long[] mDurations;
+    private final int[][] mChildren;
+    private final int[] mInDegree;
+    /** 启动时不执行的懒加载任务 */
+    private final boolean[] mDeferred;
+    /** 不属于模拟进程的任务 */
+    private final boolean[] mOtherProcess;
+
+    /**
+     * @param tasks     按任务 id 排列的任务
+     * @param durations 任务名 -> 耗时（微秒），没有记录的任务使用注解中的 cost
+     * @param process   模拟的进程，main 为主进程，也可以是 :xxx 或完整进程名
+     */
+    StartupSimulation(ArrayList<TaskEntity> tasks, Map<String, Long> durations, String process) {
+        int size = tasks.size();
+        this.mTasks = tasks;
+        this.mDurations = new long[size];
+        this.mChildren = new int[size][];
+        this.mInDegree = new int[size];
+        this.mDeferred = new boolean[size];
+        this.mOtherProcess = new boolean[size];
+        Map<String, Integer> nameIndex = new HashMap<>(size * 4 / 3 + 1);
+        for (int i = 0; i < size; i++) {
+            nameIndex.put(tasks.get(i).name, i);
+        }
+        List<List<Integer>> children = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            children.add(new ArrayList<Integer>());
+        }
+        for (int i = 0; i < size; i++) {
+            TaskEntity task = tasks.get(i);
+            Long duration = durations.get(task.name);
+            mDurations[i] = duration != null ? duration : Math.max(0, task.cost) * 1000L;
+            mOtherProcess[i] = !matchProcess(task.process, process);
+            for (String depend : task.depends) {
+                Integer parent = nameIndex.get(depend);
+                if (parent == null) {
+                    System.err.println("任务 " + task.name + " 依赖的任务 " + depend + " 不存在，忽略该依赖");
+                } else if (!children.get(parent).contains(i)) {
+                    children.get(parent).add(i);
+                    mInDegree[i]++;
+                }
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            List<Integer> list = children.get(i);
+            mChildren[i] = new int[list.size()];
+            for (int j = 0; j < list.size(); j++) {
+                mChildren[i][j] = list.get(j);
+            }
+        }
+        int[] order = topologicalOrder();
+        deferLazyTasks(order);
+        computeCriticalPath(order);
+    }
+
+    /**
+     * 模拟一次启动
+     *
+     * @param workers   CPU 线程数
+     * @param ioThreads IO 线程数，为 0 时 IO 任务也在 CPU 线程执行
+     *
+     * @return 模拟结果
+     */
+    Result run(int workers, int ioThreads) {
+        int size = mTasks.size();
+        List<String> threadNames = new ArrayList<>();
+        int[] threadPool = new int[1 + workers + ioThreads];
+        threadNames.add("main");
+        threadPool[0] = POOL_MAIN;
+        for (int i = 1; i <= workers; i++) {
+            threadNames.add("victor-task-" + i);
+            threadPool[i] = POOL_CPU;
+        }
+        for (int i = 1; i <= ioThreads; i++) {
+            threadNames.add("victor-io-" + i);
+            threadPool[workers + i] = POOL_IO;
+        }
+        Result result = new Result(mTasks, threadNames, mDeferred, mOtherProcess);
+        // 每个线程池的就绪队列，主线程的空闲任务单独排队
+        List<PriorityQueue<TaskEntity>> ready = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ready.add(new PriorityQueue<TaskEntity>());
+        }
+        PriorityQueue<TaskEntity> idleQueue = new PriorityQueue<>();
+        long[] threadFree = new long[threadPool.length];
+        int[] threadLastTask = new int[threadPool.length];
+        Arrays.fill(threadLastTask, -1);
+        boolean[] threadBusy = new boolean[threadPool.length];
+        PriorityQueue<long[]> events = new PriorityQueue<>(16, new Comparator<long[]>() {
+            @Override
+            public int compare(long[] a, long[] b) {
+                // {结束时间, 线程, 任务 id}，同时结束时按线程顺序处理，结果可复现
+                int result = Long.compare(a[0], b[0]);
+                return result != 0 ? result : Long.compare(a[1], b[1]);
+            }
+        });
+        int[] inDegree = mInDegree.clone();
+        long[] readyTime = new long[size];
+        int[] releasedBy = new int[size];
+        Arrays.fill(releasedBy, -1);
+
+        List<Integer> released = new ArrayList<>();
+        for (int id = 0; id < size; id++) {
+            if (!mDeferred[id] && inDegree[id] == 0) {
+                released.add(id);
+            }
+        }
+        long now = 0;
+        while (true) {
+            // 新就绪的任务入队，不属于模拟进程的任务直接完成并继续释放子任务
+            for (int k = 0; k < released.size(); k++) {
+                int id = released.get(k);
+                readyTime[id] = now;
+                if (mOtherProcess[id]) {
+                    result.onSkip(id, now);
+                    release(id, inDegree, released, releasedBy);
+                    continue;
+                }
+                TaskEntity task = mTasks.get(id);
+                if (!task.background) {
+                    (task.idle ? idleQueue : ready.get(POOL_MAIN)).offer(task);
+                } else {
+                    boolean io = task.dispatcher == ITaskConstant.DISPATCHER_IO && ioThreads > 0;
+                    ready.get(io ? POOL_IO : POOL_CPU).offer(task);
+                }
+            }
+            released.clear();
+            // 空闲的线程取出各自队列中优先级最高的任务
+            for (int thread = 0; thread < threadPool.length; thread++) {
+                if (threadBusy[thread]) {
+                    continue;
+                }
+                PriorityQueue<TaskEntity> queue = ready.get(threadPool[thread]);
+                TaskEntity task = queue.poll();
+                if (task == null && thread == 0) {
+                    task = idleQueue.poll();
+                }
+                if (task == null) {
+                    continue;
+                }
+                long end = now + mDurations[task.id];
+                threadBusy[thread] = true;
+                result.onRun(task.id, thread, readyTime[task.id], now, end, releasedBy[task.id],
+                        threadFree[thread] == now ? threadLastTask[thread] : -1);
+                events.offer(new long[]{end, thread, task.id});
+            }
+            long[] event = events.poll();
+            if (event == null) {
+                break;
+            }
+            now = event[0];
+            int thread = (int) event[1];
+            int id = (int) event[2];
+            threadBusy[thread] = false;
+            threadFree[thread] = now;
+            threadLastTask[thread] = id;
+            release(id, inDegree, released, releasedBy);
+        }
+        return result;
+    }
+
+    /**
+     * @return 无限线程时的总耗时下限，即启动任务中最长的关键路径（微秒）
+     */
+    long getCriticalPathBound() {
+        long bound = 0;
+        for (int id = 0; id < mTasks.size(); id++) {
+            if (!mDeferred[id]) {
+                bound = Math.max(bound, mTasks.get(id).criticalPath);
+            }
+        }
+        return bound;
+    }
+
+    private void release(int id, int[] inDegree, List<Integer> released, int[] releasedBy) {
+        for (int child : mChildren[id]) {
+            if (--inDegree[child] == 0 && !mDeferred[child]) {
+                releasedBy[child] = id;
+                released.add(child);
+            }
+        }
+    }
+
+    private int[] topologicalOrder() {
+        int size = mTasks.size();
+        int[] degree = mInDegree.clone();
+        int[] order = new int[size];
+        int head = 0;
+        int tail = 0;
+        for (int id = 0; id < size; id++) {
+            if (degree[id] == 0) {
+                order[tail++] = id;
+            }
+        }
+        while (head < tail) {
+            int id = order[head++];
+            for (int child : mChildren[id]) {
+                if (--degree[child] == 0) {
+                    order[tail++] = child;
+                }
+            }
+        }
+        if (tail != size) {
+            throw new IllegalArgumentException("启动任务存在循环依赖!");
+        }
+        return order;
+    }
+
+    /**
+     * 与运行时 TaskGraph.deferLazyTasks 一致：懒加载任务只在被启动时执行的任务依赖时执行
+     */
+    private void deferLazyTasks(int[] order) {
+        for (int k = order.length - 1; k >= 0; k--) {
+            int id = order[k];
+            boolean needed = !mTasks.get(id).lazy;
+            for (int child : mChildren[id]) {
+                needed |= !mDeferred[child];
+            }
+            mDeferred[id] = !needed;
+        }
+    }
+
+    /**
+     * 与运行时 TaskGraph.computeCriticalPath 一致，不执行的任务耗时为 0
+     */
+    private void computeCriticalPath(int[] order) {
+        for (int k = order.length - 1; k >= 0; k--) {
+            int id = order[k];
+            long longest = 0;
+            for (int child : mChildren[id]) {
+                longest = Math.max(longest, mTasks.get(child).criticalPath);
+            }
+            boolean skipped = mDeferred[id] || mOtherProcess[id];
+            mTasks.get(id).criticalPath = longest + (skipped ? 0 : mDurations[id]);
+        }
+    }
+
+    /**
+     * 与运行时 TaskProcessUtil.checkProcess 一致，进程声明为空时表示所有进程；离线时没有包名，:xxx 和完整进程名只与 process 参数原样比较
+     */
+    private static boolean matchProcess(String[] declared, String process) {
+        if (declared == null || declared.length == 0) {
+            return true;
+        }
+        boolean main = ITaskConstant.PROCESS_MAIN.equals(process);
+        for (String p : declared) {
+            if (ITaskConstant.PROCESS_ALL.equals(p)
+                    || (ITaskConstant.PROCESS_MAIN.equals(p) && main)
+                    || (ITaskConstant.PROCESS_OTHER.equals(p) && !main)
+                    || p.equals(process)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 模拟结果
+     */
+    static final class Result {
+        private final ArrayList<TaskEntity> mTasks;
+        private final List<String> mThreadNames;
+        private final boolean[] mDeferred;
+        private final boolean[] mOtherProcess;
+        private final int[] mThread;
+        private final long[] mReady;
+        private final long[] mStart;
+        private final long[] mEnd;
+        /** 使任务就绪的最后一个父任务，没有时为 -1 */
+        private final int[] mReleasedBy;
+        /** 任务排队等待线程时，在同一线程上紧挨着它之前执行的任务，没有等待线程时为 -1 */
+        private final int[] mPreviousOnThread;
+        private final boolean[] mExecuted;
+
+        Result(ArrayList<TaskEntity> tasks, List<String> threadNames, boolean[] deferred, boolean[] otherProcess) {
+            int size = tasks.size();
+            this.mTasks = tasks;
+            this.mThreadNames = threadNames;
+            this.mDeferred = deferred;
+            this.mOtherProcess = otherProcess;
+            this.mThread = new int[size];
+            this.mReady = new long[size];
+            this.mStart = new long[size];
+            this.mEnd = new long[size];
+            this.mReleasedBy = new int[size];
+            this.mPreviousOnThread = new int[size];
+            this.mExecuted = new boolean[size];
+        }
+
+        void onSkip(int id, long time) {
+            mThread[id] = -1;
+            mReady[id] = mStart[id] = mEnd[id] = time;
+        }
+
+        void onRun(int id, int thread, long ready, long start, long end, int releasedBy, int previousOnThread) {
+            mThread[id] = thread;
+            mReady[id] = ready;
+            mStart[id] = start;
+            mEnd[id] = end;
+            mReleasedBy[id] = releasedBy;
+            mPreviousOnThread[id] = start > ready ? previousOnThread : -1;
+            mExecuted[id] = true;
+        }
+
+        /**
+         * @return 预计总耗时，即最后一个启动任务结束的时间（微秒）
+         */
+        long getMakespan() {
+            long makespan = 0;
+            for (int id = 0; id < mTasks.size(); id++) {
+                makespan = Math.max(makespan, mEnd[id]);
+            }
+            return makespan;
+        }
+
+        /**
+         * @return 线程名
+         */
+        List<String> getThreadNames() {
+            return mThreadNames;
+        }
+
+        /**
+         * @param thread 线程
+         *
+         * @return 线程执行任务的总时长（微秒）
+         */
+        long getBusyTime(int thread) {
+            long busy = 0;
+            for (int id = 0; id < mTasks.size(); id++) {
+                if (mExecuted[id] && mThread[id] == thread) {
+                    busy += mEnd[id] - mStart[id];
+                }
+            }
+            return busy;
+        }
+
+        /**
+         * @param thread 线程
+         *
+         * @return 线程执行的任务数
+         */
+        int getTaskCount(int thread) {
+            int count = 0;
+            for (int id = 0; id < mTasks.size(); id++) {
+                if (mExecuted[id] && mThread[id] == thread) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        int getExecutedCount() {
+            return count(mExecuted);
+        }
+
+        int getDeferredCount() {
+            return count(mDeferred);
+        }
+
+        int getOtherProcessCount() {
+            int count = 0;
+            for (int id = 0; id < mTasks.size(); id++) {
+                if (mOtherProcess[id] && !mDeferred[id]) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * 从最后结束的任务向前回溯决定总耗时的任务链：任务一就绪就开始执行时，前一个是使它就绪的父任务；
+         * 排队等待线程时，前一个是同一线程上在它之前执行的任务
+         *
+         * @return 按执行顺序排列的任务 id
+         */
+        List<Integer> getCriticalPath() {
+            List<Integer> path = new ArrayList<>();
+            int last = -1;
+            for (int id = 0; id < mTasks.size(); id++) {
+                if (mExecuted[id] && (last == -1 || mEnd[id] > mEnd[last])) {
+                    last = id;
+                }
+            }
+            for (int id = last; id != -1; ) {
+                path.add(id);
+                int previous = mPreviousOnThread[id] != -1 ? mPreviousOnThread[id] : mReleasedBy[id];
+                // 跳过不属于模拟进程、直接完成的任务
+                while (previous != -1 && !mExecuted[previous]) {
+                    previous = findReleasedBy(previous);
+                }
+                id = previous;
+            }
+            Collections.reverse(path);
+            return path;
+        }
+
+        String getTaskName(int id) {
+            return mTasks.get(id).name;
+        }
+
+        String getThreadName(int id) {
+            return mThreadNames.get(mThread[id]);
+        }
+
+        long getQueueWait(int id) {
+            return mStart[id] - mReady[id];
+        }
+
+        long getDuration(int id) {
+            return mEnd[id] - mStart[id];
+        }
+
+        /**
+         * 直接完成的任务没有记录使它就绪的父任务，取结束最晚的已执行父任务
+         */
+        private int findReleasedBy(int id) {
+            int latest = -1;
+            for (int parent = 0; parent < mTasks.size(); parent++) {
+                if (mEnd[parent] == mReady[id] && parent != id && dependsOn(id, parent)
+                        && (latest == -1 || mEnd[parent] > mEnd[latest])) {
+                    latest = parent;
+                }
+            }
+            return latest;
+        }
+
+        private boolean dependsOn(int id, int parent) {
+            String name = mTasks.get(parent).name;
+            for (String depend : mTasks.get(id).depends) {
+                if (depend.equals(name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static int count(boolean[] values) {
+            int count = 0;
+            for (boolean value : values) {
+                if (value) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.android.task_simulator;
+
+import com.android.task_annotation.ITaskConstant;
+import com.android.task_annotation.TaskEntity;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ClassName: StartupSimulator Description: 离线启动模拟器入口，读取插件输出的任务图和任务耗时，按给定的后台线程数模拟启动，
+ * 输出预计总耗时、各线程利用率和关键路径，用于在不上真机的情况下评估调整依赖、优先级或线程数的收益 Date: 2026/10/18 20:10
+ */
+public final class StartupSimulator {
+    private static final String USAGE = "用法：StartupSimulator <task-graph.json> [--durations <victor_trace.json|耗时.properties>]"
+            + " [--workers 2,4,8] [--io-threads N] [--process main|:xxx|完整进程名]";
+
+    private StartupSimulator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        File graphFile = null;
+        File durationFile = null;
+        String process = "main";
+        int ioThreads = -1;
+        List<Integer> workers = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ("--durations".equals(arg) && i + 1 < args.length) {
+                durationFile = new File(args[++i]);
+            } else if ("--workers".equals(arg) && i + 1 < args.length) {
+                for (String value : args[++i].split(",")) {
+                    workers.add(Integer.parseInt(value.trim()));
+                }
+            } else if ("--io-threads".equals(arg) && i + 1 < args.length) {
+                ioThreads = Integer.parseInt(args[++i]);
+            } else if ("--process".equals(arg) && i + 1 < args.length) {
+                process = args[++i];
+            } else if (!arg.startsWith("--") && graphFile == null) {
+                graphFile = new File(arg);
+            } else {
+                System.err.println(USAGE);
+                System.exit(1);
+                return;
+            }
+        }
+        if (graphFile == null) {
+            System.err.println(USAGE);
+            System.exit(1);
+            return;
+        }
+        if (workers.isEmpty()) {
+            workers.add(Runtime.getRuntime().availableProcessors());
+        }
+        Collections.sort(workers);
+
+        ArrayList<TaskEntity> tasks = TaskGraphReader.read(graphFile);
+        Map<String, Long> durations = durationFile == null ? Collections.<String, Long>emptyMap()
+                : TaskDurations.read(durationFile);
+        StartupSimulation simulation = new StartupSimulation(tasks, durations, process);
+        int measured = 0;
+        for (TaskEntity task : tasks) {
+            if (durations.containsKey(task.name)) {
+                measured++;
+            }
+        }
+        System.out.println("任务图 " + graphFile.getName() + "：共 " + tasks.size() + " 个任务，" + measured
+                + " 个使用实测耗时，其余使用注解 cost，进程 " + process);
+        long bound = simulation.getCriticalPathBound();
+        for (int worker : workers) {
+            if (worker <= 0) {
+                continue;
+            }
+            // 与 TaskExecutors 一致，IO 线程数默认为 max(8, 2 * 核数)
+            int io = ioThreads >= 0 ? ioThreads : Math.max(8, worker * 2);
+            StartupSimulation.Result result = simulation.run(worker, hasIoTasks(tasks) ? io : 0);
+            System.out.println();
+            System.out.println(report(worker, result, bound));
+        }
+    }
+
+    private static boolean hasIoTasks(List<TaskEntity> tasks) {
+        for (TaskEntity task : tasks) {
+            if (task.background && task.dispatcher == ITaskConstant.DISPATCHER_IO) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String report(int workers, StartupSimulation.Result result, long bound) {
+        long makespan = result.getMakespan();
+        StringBuilder sb = new StringBuilder();
+        sb.append("后台线程 ").append(workers).append(" 个：预计总耗时 ").append(toMillis(makespan))
+                .append("ms，线程无限时下限 ").append(toMillis(bound)).append("ms，执行 ")
+                .append(result.getExecutedCount()).append(" 个任务，懒加载未执行 ").append(result.getDeferredCount())
+                .append(" 个，其他进程 ").append(result.getOtherProcessCount()).append(" 个");
+        sb.append("\n线程利用率：");
+        List<String> threads = result.getThreadNames();
+        for (int thread = 0; thread < threads.size(); thread++) {
+            int count = result.getTaskCount(thread);
+            if (count == 0) {
+                continue;
+            }
+            long busy = result.getBusyTime(thread);
+            sb.append("\n  ").append(threads.get(thread))
+                    .append(" 执行 ").append(toMillis(busy)).append("ms")
+                    .append(" 利用率 ").append(makespan == 0 ? 0 : busy * 100 / makespan).append('%')
+                    .append(" 共 ").append(count).append(" 个任务");
+        }
+        List<Integer> path = result.getCriticalPath();
+        long wait = 0;
+        long run = 0;
+        StringBuilder pathLines = new StringBuilder();
+        for (int id : path) {
+            wait += result.getQueueWait(id);
+            run += result.getDuration(id);
+            pathLines.append("\n  ").append(result.getTaskName(id))
+                    .append(" [").append(result.getThreadName(id)).append(']')
+                    .append(" 等待 ").append(toMillis(result.getQueueWait(id))).append("ms")
+                    .append(" 执行 ").append(toMillis(result.getDuration(id))).append("ms");
+        }
+        sb.append("\n关键路径：执行 ").append(toMillis(run)).append("ms，排队 ").append(toMillis(wait))
+                .append("ms，共 ").append(path.size()).append(" 个任务").append(pathLines);
+        return sb.toString();
+    }
+
+    private static String toMillis(long micros) {
+        return String.valueOf(micros / 1000) + '.' + (micros % 1000 / 100);
+    }
+}
@@ -0,0 +1,66 @@
+package com.android.task_simulator;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * ClassName: TaskDurations Description: 读取任务耗时，支持 TaskTrace.writeChromeTrace 导出的 trace（.json）
+ * 和 任务名=毫秒 格式的 properties 文件 Date: 2026/10/18 20:10
+ */
+final class TaskDurations {
+
+    private TaskDurations() {
+    }
+
+    /**
+     * 读取任务耗时
+     *
+     * @param file trace 或 properties 文件
+     *
+     * @return 任务名 -> 耗时（微秒）
+     */
+    static Map<String, Long> read(File file) throws IOException {
+        Reader reader = new InputStreamReader(Files.newInputStream(file.toPath()), StandardCharsets.UTF_8);
+        try {
+            return file.getName().endsWith(".json") ? readTrace(reader) : readProperties(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * 读取 Chrome trace 中的完整事件，dur 单位为微秒；同名任务出现多次时取最后一次
+     */
+    private static Map<String, Long> readTrace(Reader reader) {
+        Map<String, Long> durations = new HashMap<>();
+        JsonObject root = new JsonParser().parse(reader).getAsJsonObject();
+        for (JsonElement element : root.getAsJsonArray("traceEvents")) {
+            JsonObject event = element.getAsJsonObject();
+            if ("X".equals(event.get("ph").getAsString()) && event.has("dur")) {
+                durations.put(event.get("name").getAsString(), event.get("dur").getAsLong());
+            }
+        }
+        return durations;
+    }
+
+    private static Map<String, Long> readProperties(Reader reader) throws IOException {
+        Properties properties = new Properties();
+        properties.load(reader);
+        Map<String, Long> durations = new HashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            durations.put(name, Math.round(Double.parseDouble(properties.getProperty(name).trim()) * 1000));
+        }
+        return durations;
+    }
+}
@@ -0,0 +1,67 @@
+package com.android.task_simulator;
+
+import com.android.task_annotation.TaskEntity;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+/**
+ * ClassName: TaskGraphReader Description: 读取插件输出的任务图 JSON，任务顺序即运行时的任务 id Date: 2026/10/18 20:10
+ */
+final class TaskGraphReader {
+
+    private TaskGraphReader() {
+    }
+
+    /**
+     * 读取任务图
+     *
+     * @param file TaskGraphCompiler.writeJson 写入的文件
+     *
+     * @return 按任务 id 排列的任务，不含任务实例
+     */
+    static ArrayList<TaskEntity> read(File file) throws IOException {
+        JsonObject root;
+        Reader reader = new InputStreamReader(Files.newInputStream(file.toPath()), StandardCharsets.UTF_8);
+        try {
+            root = new JsonParser().parse(reader).getAsJsonObject();
+        } finally {
+            reader.close();
+        }
+        JsonArray tasks = root.getAsJsonArray("tasks");
+        ArrayList<TaskEntity> entities = new ArrayList<>(tasks.size());
+        for (JsonElement element : tasks) {
+            JsonObject task = element.getAsJsonObject();
+            TaskEntity entity = new TaskEntity.Builder(task.get("name").getAsString())
+                    .background(task.get("background").getAsBoolean())
+                    .idle(task.get("idle").getAsBoolean())
+                    .dispatcher(task.get("dispatcher").getAsInt())
+                    .priority(task.get("priority").getAsInt())
+                    .cost(task.get("cost").getAsInt())
+                    .lazy(task.get("lazy").getAsBoolean())
+                    .process(toStrings(task.getAsJsonArray("process")))
+                    .depends(toStrings(task.getAsJsonArray("depends")))
+                    .build();
+            entity.id = entities.size();
+            entities.add(entity);
+        }
+        return entities;
+    }
+
+    private static String[] toStrings(JsonArray array) {
+        String[] values = new String[array.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = array.get(i).getAsString();
+        }
+        return values;
+    }
+}